@@ -2,14 +2,26 @@ create database onlineshop;
 
 use onlineshop;
 
+-- products và product_img dùng sequence (bước 50, khớp allocationSize của Hibernate) thay cho IDENTITY
+-- để insert được gom thành JDBC batch
+CREATE SEQUENCE products_seq AS INT START WITH 1000 INCREMENT BY 50;
+
+CREATE SEQUENCE product_img_seq AS INT START WITH 1000 INCREMENT BY 50;
+
+CREATE SEQUENCE orders_seq AS INT START WITH 1000 INCREMENT BY 50;
+
+CREATE SEQUENCE order_details_seq AS INT START WITH 1000 INCREMENT BY 50;
+
 CREATE TABLE categories (
     id INT IDENTITY(1000, 1) NOT NULL,
     [name] varchar(100) NULL,
+    -- tăng mỗi lần ghi, dùng cho optimistic locking và ETag
+    version bigint NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 );
 
 CREATE TABLE order_details (
-    id INT IDENTITY(1000, 1) NOT NULL,
+    id INT NOT NULL DEFAULT (NEXT VALUE FOR order_details_seq),
     number_of_product int NULL,
     price float NULL,
     product_id int NOT NULL,
@@ -18,28 +30,37 @@ CREATE TABLE order_details (
 );
 
 CREATE TABLE orders (
-    id INT IDENTITY(1000, 1) NOT NULL,
+    id INT NOT NULL DEFAULT (NEXT VALUE FOR orders_seq),
     order_date date NULL,
     total_money float NULL,
     [user_id] int NOT NULL,
+    -- mã đơn trả về cho khách khi đơn đi qua hàng đợi (order.intake.mode=async)
+    reference varchar(36) NULL,
+    -- key do form checkout hoặc header Idempotency-Key gửi lên, chặn tạo trùng đơn khi gửi lại
+    idempotency_key varchar(64) NULL,
+    -- 1 khi số lượng của đơn đã được trừ vào product_stock
+    stock_applied bit NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 );
 
 CREATE TABLE product_img (
-    id INT IDENTITY(1000, 1) NOT NULL,
+    id INT NOT NULL DEFAULT (NEXT VALUE FOR product_img_seq),
     img_url varchar(300) NULL,
+    -- chiều rộng các bản thu nhỏ đã tạo, vd '150,400,800'; NULL là chưa tạo, rỗng là không cần/không tạo được
+    variant_widths varchar(50) NULL,
     product_id int NOT NULL,
     PRIMARY KEY (id)
 );
 
 CREATE TABLE products (
-    id INT IDENTITY(1000, 1) NOT NULL,
+    id INT NOT NULL DEFAULT (NEXT VALUE FOR products_seq),
     [name] varchar(350) NULL,
     price float NULL,
     [description] varchar(300) NULL,
     created_at date NULL,
     updated_at date NULL,
     category_id int NOT NULL,
+    version bigint NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 );
 
@@ -82,6 +103,77 @@ ALTER TABLE
 ADD
     CONSTRAINT FKproduct_im53257 FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE;
 
+-- Index cho phân trang keyset (seek theo (name, id) và (created_at, id))
+CREATE INDEX IX_products_name_id ON products ([name], id);
+
+CREATE INDEX IX_products_category_name_id ON products (category_id, [name], id);
+
+CREATE INDEX IX_products_created_at_id ON products (created_at DESC, id DESC);
+
+-- Replay journal đặt hàng dựa vào đây để không tạo lại đơn đã commit
+CREATE UNIQUE INDEX UX_orders_reference ON orders (reference) WHERE reference IS NOT NULL;
+
+-- Chốt chặn cuối cho checkout gửi lại khi cache idempotency trong bộ nhớ không còn key, key chỉ duy nhất trong đơn của một user
+CREATE UNIQUE INDEX UX_orders_user_idempotency_key ON orders ([user_id], idempotency_key) WHERE idempotency_key IS NOT NULL;
+
+-- Đơn chưa trừ tồn kho, job flush tồn kho và lúc khởi động đọc theo index này
+CREATE INDEX IX_orders_stock_pending ON orders (id) WHERE stock_applied = 0;
+
+-- Lịch sử đơn hàng (keyset theo id giảm dần), INCLUDE đủ cột để không phải đọc lại bảng
+CREATE INDEX IX_orders_user_id_id ON orders ([user_id], id DESC) INCLUDE (order_date, total_money, reference);
+
+-- Lịch sử đơn của admin lọc theo khoảng ngày, keyset theo (order_date, id) giảm dần
+CREATE INDEX IX_orders_order_date_id ON orders (order_date DESC, id DESC) INCLUDE ([user_id], total_money, reference);
+
+CREATE INDEX IX_order_details_order_id ON order_details (order_id) INCLUDE (product_id, number_of_product, price);
+
+-- Doanh thu cộng dồn theo ngày: dimension 'day' (dim_id = 0), 'category' (dim_id = category id), 'product' (dim_id = product id)
+CREATE TABLE sales_rollups (
+    dimension varchar(10) NOT NULL,
+    dim_id INT NOT NULL,
+    sales_date date NOT NULL,
+    order_count bigint NOT NULL,
+    item_count bigint NOT NULL,
+    revenue_cents bigint NOT NULL,
+    PRIMARY KEY (dimension, dim_id, sales_date)
+);
+
+CREATE INDEX IX_sales_rollups_dimension_date ON sales_rollups (dimension, sales_date) INCLUDE (dim_id, order_count, item_count, revenue_cents);
+
+-- Tồn kho của product, product không có dòng ở đây thì không giới hạn số lượng
+CREATE TABLE product_stock (
+    product_id INT NOT NULL,
+    quantity INT NOT NULL,
+    PRIMARY KEY (product_id)
+);
+
+ALTER TABLE
+    product_stock
+ADD
+    CONSTRAINT FKproduct_stock_product FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE;
+
+-- Giỏ hàng của user đã đăng nhập, được ghi bất đồng bộ (write-behind) từ giỏ trong bộ nhớ
+CREATE TABLE cart_items (
+    [user_id] INT NOT NULL,
+    product_id INT NOT NULL,
+    qty INT NOT NULL,
+    unit_cents BIGINT NOT NULL,
+    updated_at datetime2 NOT NULL,
+    PRIMARY KEY ([user_id], product_id)
+);
+
+ALTER TABLE
+    cart_items
+ADD
+    CONSTRAINT FKcart_items_user FOREIGN KEY ([user_id]) REFERENCES users (id) ON DELETE CASCADE;
+
+ALTER TABLE
+    cart_items
+ADD
+    CONSTRAINT FKcart_items_product FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE;
+
+CREATE INDEX IX_products_category_created_at_id ON products (category_id, created_at DESC, id DESC);
+
 INSERT INTO
     Categories (name)
 VALUES
@@ -1,17 +1,33 @@
 package com.project.assignment.controllers;
 
 
+import com.project.assignment.services.sales.SalesReportService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.time.LocalDate;
 
 
 @Controller
 @RequestMapping("/admin")
 public class AdminController {
+    private final SalesReportService salesReportService;
+
+    public AdminController(SalesReportService salesReportService) {
+        this.salesReportService = salesReportService;
+    }
+
+    //Số liệu đọc từ bảng rollup, không GROUP BY trên orders
     @GetMapping("/dash-board")
-    public String showAdminDashboard() {
-        return "dashboard/layout-admin";
+    public String showAdminDashboard(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     Model model) {
+        model.addAttribute("report", salesReportService.getReport(from, to));
+        return "dashboard/index";
     }
 
     @GetMapping("/products")
@@ -1,37 +1,40 @@
 package com.project.assignment.controllers;
 
-import com.project.assignment.models.Item;
 import com.project.assignment.models.User;
+import com.project.assignment.responses.OrderStatusResponse;
 import com.project.assignment.securities.UserPrincipal;
-import com.project.assignment.services.CartService;
-import com.project.assignment.services.OrderService;
 import com.project.assignment.services.UserService;
+import com.project.assignment.services.order.CheckoutService;
+import com.project.assignment.services.order.OrderIntake;
+import com.project.assignment.systems.OrderRejectedException;
+import com.project.assignment.systems.OutOfStockException;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 @Controller
 @RequestMapping
 public class CartController {
     private static final Logger logger = LoggerFactory.getLogger(CartController.class);
-    private final CartService cartService;
-    private final OrderService orderService;
     private final UserService userService;
+    private final OrderIntake orderIntake;
+    private final CheckoutService checkoutService;
 
     @Autowired
-    public CartController(CartService cartService, OrderService orderService, UserService userService) {
-        this.cartService = cartService;
-        this.orderService = orderService;
+    public CartController(UserService userService, OrderIntake orderIntake, CheckoutService checkoutService) {
         this.userService = userService;
+        this.orderIntake = orderIntake;
+        this.checkoutService = checkoutService;
     }
 
     @GetMapping("/checkout")
@@ -51,11 +54,15 @@ public class CartController {
         } else {
             model.addAttribute("userInfo", new User());
         }
+        //Mỗi lần mở trang một key mới, bấm đúp hoặc gửi lại form thì dùng lại key này
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
         return "checkout";
     }
 
     @PostMapping("/order")
     public String placeOrder(@RequestParam(name = "isCreate", required = false) Boolean isCreate,
+                             @RequestParam(name = "idempotencyKey", required = false) String idempotencyKey,
+                             @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKeyHeader,
                              Model model,
                              @ModelAttribute User user,
                              @AuthenticationPrincipal UserPrincipal userPrincipal,
@@ -64,23 +71,23 @@ public class CartController {
 
 
         boolean isCreated = (isCreate != null) ? isCreate : false;
+        String key = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKey;
 
         try {
             if (isCreated && userPrincipal == null) {
-                User newUser = this.userService.save(user);
-                placeOrderForUser(newUser);
-                clearCart(session);
-                redirectAttributes.addFlashAttribute("message", "Order Successfully");
+                //Tài khoản khách chỉ được tạo khi đơn thực sự được đặt, gửi lại form không tạo thêm
+                showResult(this.checkoutService.checkoutAsGuest(session.getId(), key, () -> this.userService.save(user)), redirectAttributes);
             } else if (!isCreated && userPrincipal != null) {
-                User loginUser = this.userService.findById(userPrincipal.getId());
-                placeOrderForUser(loginUser);
-                clearCart(session);
-                redirectAttributes.addFlashAttribute("message", "Order Successfully");
-
+                showResult(this.checkoutService.checkout(userPrincipal.getId(), key, () -> this.userService.findById(userPrincipal.getId())), redirectAttributes);
             } else {
                 redirectAttributes.addFlashAttribute("message", "Order failed: Invalid user state");
                 return "redirect:/login";
             }
+        } catch (OutOfStockException e) {
+            redirectAttributes.addFlashAttribute("message", "Order failed: " + e.getMessage());
+        } catch (OrderRejectedException e) {
+            logger.warn("Order rejected: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("message", "We are receiving too many orders, please try again in a moment");
         } catch (Exception e) {
             logger.error("Order placement failed", e);
             redirectAttributes.addFlashAttribute("message", "Order failed");
@@ -88,20 +95,25 @@ public class CartController {
         return "redirect:/checkout";
     }
 
-    private void placeOrderForUser(User user) throws Exception {
-        List<Item> cartsItem = this.cartService.getItems();
-        List<Integer> productIds = cartsItem.stream()
-                .map(Item::getId)
-                .collect(Collectors.toList());
-        List<Integer> quantities = cartsItem.stream()
-                .map(Item::getQty)
-                .collect(Collectors.toList());
-        this.orderService.createOrder(user, productIds, quantities);
-
+    //Trang checkout gọi endpoint này định kỳ để biết đơn đã vào hàng đợi được commit chưa
+    @GetMapping("/order/status/{reference}")
+    @ResponseBody
+    public ResponseEntity<OrderStatusResponse> orderStatus(@PathVariable String reference) {
+        OrderStatusResponse status = this.orderIntake.getStatus(reference);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(status);
     }
 
-    private void clearCart(HttpSession session) {
-        session.removeAttribute("cart");
-        this.cartService.clear();
+    private void showResult(OrderStatusResponse result, RedirectAttributes redirectAttributes) {
+        if (result.getStatus() == OrderStatusResponse.Status.QUEUED) {
+            redirectAttributes.addFlashAttribute("message", "Order received, reference " + result.getReference());
+            redirectAttributes.addFlashAttribute("orderReference", result.getReference());
+        } else {
+            redirectAttributes.addFlashAttribute("message", "Order Successfully");
+        }
     }
 }
@@ -3,6 +3,8 @@ package com.project.assignment.controllers;
 
 import com.project.assignment.models.Category;
 import com.project.assignment.services.CategoryService;
+import com.project.assignment.services.category.CategoryCatalog;
+import com.project.assignment.services.category.CategoryView;
 import com.project.assignment.systems.ObjectNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -16,17 +18,19 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CategoryCatalog categoryCatalog;
 
     @Autowired
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, CategoryCatalog categoryCatalog) {
         this.categoryService = categoryService;
+        this.categoryCatalog = categoryCatalog;
     }
 
     @GetMapping
     public String showCategories(Model model) {
         Category item = new Category();
         model.addAttribute("item", item);
-        List<Category> items = this.categoryService.findAll();
+        List<CategoryView> items = this.categoryCatalog.getCategories();
         model.addAttribute("items", items);
         return "dashboard/category";
     }
@@ -42,7 +46,7 @@ public class CategoryController {
     public String editCategory(@PathVariable("id") Integer id, Model model) {
         Category item = this.categoryService.findById(id);
         model.addAttribute("item", item);
-        List<Category> items = this.categoryService.findAll();
+        List<CategoryView> items = this.categoryCatalog.getCategories();
         model.addAttribute("items", items);
         return "dashboard/category";
     }
@@ -2,14 +2,21 @@ package com.project.assignment.controllers;
 
 import com.project.assignment.dtos.CategoryDTO;
 import com.project.assignment.models.Category;
+import com.project.assignment.repositories.CategoryRepository;
+import com.project.assignment.services.category.CategoryCatalog;
 import com.project.assignment.services.category.CategoryRestService;
+import com.project.assignment.services.category.CategorySnapshot;
 import com.project.assignment.systems.NotFoundException;
+import com.project.assignment.utilities.ETags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -19,6 +26,8 @@ import java.util.List;
 @CrossOrigin(origins = "http://127.0.0.1:5500")
 public class CategoryRestController {
     private final CategoryRestService categoryRestService;
+    private final CategoryRepository categoryRepository;
+    private final CategoryCatalog categoryCatalog;
 
     @PostMapping
     public ResponseEntity<?> createCategory(@Valid @RequestBody CategoryDTO categoryDTO, BindingResult bindingResult) {
@@ -36,15 +45,33 @@ public class CategoryRestController {
         }
     }
 
+    //Trả thẳng JSON đã serialize sẵn trong snapshot, ETag theo nội dung
     @GetMapping
-    public ResponseEntity<?> getAllCategories() {
-        return ResponseEntity.ok().body(categoryRestService.getAllCategories());
+    public ResponseEntity<?> getAllCategories(WebRequest webRequest) {
+        CategorySnapshot snapshot = categoryCatalog.snapshot();
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getEtag())
+                .body(snapshot.getJson());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getCategoryById(@PathVariable int id) {
+    public ResponseEntity<?> getCategoryById(@PathVariable int id, WebRequest webRequest) {
+        String etag = categoryRepository.findVersionById(id)
+                .map(version -> ETags.strong("category", id, version))
+                .orElse(null);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
         try {
-            return ResponseEntity.ok().body(categoryRestService.getCategoryById(id));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .body(categoryRestService.getCategoryById(id));
         } catch (NotFoundException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
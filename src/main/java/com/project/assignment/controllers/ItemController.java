@@ -2,6 +2,7 @@ package com.project.assignment.controllers;
 
 
 import com.project.assignment.services.CartService;
+import com.project.assignment.services.cart.CartSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -23,7 +24,7 @@ public class ItemController {
 
     @GetMapping("/shopping-cart")
     public String viewCart(Model model) {
-        model.addAttribute("items", cartService);
+        model.addAttribute("items", new CartSummary(cartService));
         return "shopping-cart";
     }
 
@@ -3,9 +3,15 @@ package com.project.assignment.controllers;
 import com.project.assignment.models.Category;
 import com.project.assignment.models.Product;
 import com.project.assignment.models.User;
-import com.project.assignment.services.CategoryService;
 import com.project.assignment.services.ProductService;
 import com.project.assignment.services.UserService;
+import com.project.assignment.services.category.CategoryCatalog;
+import com.project.assignment.services.product.FacetResult;
+import com.project.assignment.services.product.PriceRange;
+import com.project.assignment.services.product.ProductCursor;
+import com.project.assignment.services.product.ProductFacetIndex;
+import com.project.assignment.services.product.ProductSnapshot;
+import com.project.assignment.services.product.ProductWindow;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -20,6 +26,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Objects;
 
 @Controller
 @RequestMapping({"", "/"})
@@ -27,14 +35,16 @@ public class MainController {
 
     private final ProductService productService;
     private final UserService userService;
-    private final CategoryService categoryService;
+    private final CategoryCatalog categoryCatalog;
+    private final ProductFacetIndex productFacetIndex;
 
 
     @Autowired
-    public MainController(ProductService productService, UserService userService, CategoryService categoryService) {
+    public MainController(ProductService productService, UserService userService, CategoryCatalog categoryCatalog, ProductFacetIndex productFacetIndex) {
         this.productService = productService;
         this.userService = userService;
-        this.categoryService = categoryService;
+        this.categoryCatalog = categoryCatalog;
+        this.productFacetIndex = productFacetIndex;
     }
 
     @GetMapping({"", "/"})
@@ -46,33 +56,90 @@ public class MainController {
     }
 
     @GetMapping("/shop")
-    public String showShopPage(Model model, @RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "-1") int category) {
+    public String showShopPage(Model model,
+                               @RequestParam(defaultValue = "1") int page,
+                               @RequestParam(value = "category", required = false) List<Integer> categories,
+                               @RequestParam(value = "price", required = false) List<String> prices,
+                               @RequestParam(defaultValue = ProductFacetIndex.SORT_NAME) String sort) {
         int pageSize = 6; // Number of items per page
-        Pageable pageable = PageRequest.of(page - 1, pageSize, Sort.by("name")); //name cua category
+        List<Integer> selectedCategories = categories == null ? List.of() : categories
+                .stream()
+                .filter(id -> id != null && id != -1)
+                .toList();
+        List<PriceRange> selectedPrices = prices == null ? List.of() : prices
+                .stream()
+                .map(PriceRange::fromKey)
+                .filter(Objects::nonNull)
+                .toList();
+
+        int totalPages;
+        if (productFacetIndex.isReady()) {
+            //Lọc, đếm facet và phân trang hoàn toàn trong bộ nhớ, chỉ load sản phẩm của trang hiện tại
+            FacetResult result = productFacetIndex.query(selectedCategories, selectedPrices, sort, page - 1, pageSize);
+            model.addAttribute("products", productService.findAllByIdInOrder(result.getProductIds()));
+            model.addAttribute("totalItems", result.getTotal());
+            model.addAttribute("categoryCounts", result.getCategoryCounts());
+            model.addAttribute("priceCounts", result.getPriceCounts());
+            totalPages = (int) Math.ceil((double) result.getTotal() / pageSize);
+        } else {
+            //Index chưa build xong: query database như cũ, chỉ lọc theo category đầu tiên
+            Pageable pageable = PageRequest.of(page - 1, pageSize, Sort.by("name")); //name cua category
+            Category categoryObj = new Category();
+            categoryObj.setId(selectedCategories.isEmpty() ? -1 : selectedCategories.get(0));
+
+            Page<Product> productPage = !selectedCategories.isEmpty() ? productService.findProductsByCategory(categoryObj, pageable) : productService.getAllProducts(pageable);
+            model.addAttribute("products", productPage.getContent());
+            model.addAttribute("totalItems", productPage.getTotalElements());
+            totalPages = productPage.getTotalPages();
+        }
 
-        Category categoryObj = new Category();
-        categoryObj.setId(category);
-
-        Page<Product> productPage = category != -1 ? productService.findProductsByCategory(categoryObj, pageable) : productService.getAllProducts(pageable);
-
-        model.addAttribute("products", productPage.getContent());
         int maxVisiblePages = 7; // Maximum number of visible pages
         int startPage = Math.max(1, page - maxVisiblePages / 2);
-        int endPage = Math.min(startPage + maxVisiblePages - 1, productPage.getTotalPages());
+        int endPage = Math.min(startPage + maxVisiblePages - 1, totalPages);
 
-        model.addAttribute("totalPages", productPage.getTotalPages());
+        model.addAttribute("totalPages", totalPages);
         model.addAttribute("currentPage", page);
         model.addAttribute("startPage", startPage);
         model.addAttribute("endPage", endPage);
 
-        model.addAttribute("categories", categoryService.findAll());
+        model.addAttribute("selectedCategories", selectedCategories);
+        model.addAttribute("selectedPrices", selectedPrices.stream().map(PriceRange::getKey).toList());
+        model.addAttribute("priceRanges", PriceRange.values());
+        model.addAttribute("sort", sort);
+        model.addAttribute("categories", categoryCatalog.getCategories());
+
+        return "shop";
+    }
+
+    //Chế độ cursor của trang shop: /shop?cursor= để bắt đầu, không dùng OFFSET nên trang sâu không chậm dần
+    @GetMapping(value = "/shop", params = "cursor")
+    public String showShopPageByCursor(Model model,
+                                       @RequestParam String cursor,
+                                       @RequestParam(defaultValue = ProductCursor.SORT_NAME) String sort,
+                                       @RequestParam(defaultValue = "-1") int category) {
+        int pageSize = 6; // Number of items per page
+        ProductWindow window;
+        try {
+            window = productService.scrollProducts(category != -1 ? category : null, sort, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/shop";
+        }
+
+        model.addAttribute("products", window.getProducts());
+        model.addAttribute("cursorMode", true);
+        model.addAttribute("nextCursor", window.getNextCursor());
+        model.addAttribute("prevCursor", window.getPrevCursor());
+        model.addAttribute("sort", sort);
+        model.addAttribute("category", category);
+
+        model.addAttribute("categories", categoryCatalog.getCategories());
 
         return "shop";
     }
 
     @GetMapping("/shop-details")
     public String showShopDetailsPage(@RequestParam int productId, Model model) {
-        Product product = productService.findById((Integer) productId);
+        ProductSnapshot product = productService.findSnapshot(productId);
         model.addAttribute("product", product);
         return "shop-details";
     }
@@ -0,0 +1,83 @@
+package com.project.assignment.controllers;
+
+import com.project.assignment.responses.OrderStatusResponse;
+import com.project.assignment.securities.UserPrincipal;
+import com.project.assignment.services.UserService;
+import com.project.assignment.services.order.CheckoutService;
+import com.project.assignment.services.order.OrderHistoryService;
+import com.project.assignment.systems.OrderRejectedException;
+import com.project.assignment.systems.OutOfStockException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("${api.prefix}")
+@CrossOrigin(origins = "http://127.0.0.1:5500")
+public class OrderRestController {
+    private final OrderHistoryService orderHistoryService;
+    private final CheckoutService checkoutService;
+    private final UserService userService;
+
+    //Admin: lọc theo khoảng ngày và user, phân trang bằng cursor (nextCursor của trang trước)
+    @GetMapping("/orders")
+    public ResponseEntity<?> getOrders(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                       @RequestParam(value = "userId", required = false) Integer userId,
+                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                       @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(orderHistoryService.getHistory(userId, from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/users/me/orders")
+    public ResponseEntity<?> getMyOrders(@AuthenticationPrincipal UserPrincipal userPrincipal,
+                                         @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (userPrincipal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(orderHistoryService.getHistory(userPrincipal.getId(), from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /* Đặt hàng cho giỏ của user đang đăng nhập. Gửi lại với cùng header Idempotency-Key thì nhận lại kết quả lần đầu.
+       201 khi đơn đã được tạo, 202 khi đơn đã vào hàng đợi (theo dõi qua /order/status/{reference}) */
+    @PostMapping("/users/me/orders")
+    public ResponseEntity<?> checkout(@AuthenticationPrincipal UserPrincipal userPrincipal,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (userPrincipal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            OrderStatusResponse result = checkoutService.checkout(userPrincipal.getId(), idempotencyKey, () -> userService.findById(userPrincipal.getId()));
+            HttpStatus status = result.getStatus() == OrderStatusResponse.Status.QUEUED ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+            return ResponseEntity.status(status).body(result);
+        } catch (OutOfStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (OrderRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
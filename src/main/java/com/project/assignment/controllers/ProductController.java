@@ -1,11 +1,10 @@
 package com.project.assignment.controllers;
 
-import com.project.assignment.models.Category;
 import com.project.assignment.models.Product;
 import com.project.assignment.models.ProductImage;
-import com.project.assignment.services.CategoryService;
 import com.project.assignment.services.ProductImageService;
 import com.project.assignment.services.ProductService;
+import com.project.assignment.services.category.CategoryCatalog;
 import com.project.assignment.systems.ObjectNotFoundException;
 import com.project.assignment.utilities.FileUploader;
 import lombok.RequiredArgsConstructor;
@@ -24,7 +23,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProductController {
     private final ProductService productService;
-    private final CategoryService categoryService;
+    private final CategoryCatalog categoryCatalog;
     private final ProductImageService productImageService;
 
     @GetMapping
@@ -36,9 +35,8 @@ public class ProductController {
 
     @GetMapping("/news")
     public String showForm(Model model) {
-        List<Category> categories = this.categoryService.findAll();
         model.addAttribute("item", new Product());
-        model.addAttribute("categories", categories);
+        model.addAttribute("categories", this.categoryCatalog.getCategories());
         return "dashboard/product_form";
     }
 
@@ -66,6 +64,7 @@ public class ProductController {
 
             // Set the URL of the image
             pImg.setUrl(imageUrl);
+            pImg.setVariantWidths(null);
 
             // Save the ProductImage entity
             this.productImageService.save(pImg);
@@ -74,6 +73,8 @@ public class ProductController {
             return "redirect:/dash-board/products";
         } catch (IOException e) {
             model.addAttribute("message", "Failed to upload the image");
+            model.addAttribute("item", product);
+            model.addAttribute("categories", this.categoryCatalog.getCategories());
             return "dashboard/product_form"; // return to the form in case of error
         }
     }
@@ -83,6 +84,7 @@ public class ProductController {
         try {
             Product editProduct = this.productService.findById(productId);
             model.addAttribute("item", editProduct);
+            model.addAttribute("categories", this.categoryCatalog.getCategories());
             redirectAttributes.addFlashAttribute("message", "The user has been saved successfully");
             return "dashboard/product_form";
         } catch (ObjectNotFoundException exception) {
@@ -1,32 +1,48 @@
 package com.project.assignment.controllers;
 
 import com.project.assignment.dtos.ProductDTO;
-import com.project.assignment.dtos.ProductImageDTO;
 import com.project.assignment.models.Product;
 import com.project.assignment.models.ProductImage;
 import com.project.assignment.repositories.ProductImageRepository;
 import com.project.assignment.repositories.ProductRepository;
-import com.project.assignment.responses.ListProductResponse;
 import com.project.assignment.responses.ProductImageResponse;
 import com.project.assignment.responses.ProductResponse;
+import com.project.assignment.services.inventory.InventoryService;
+import com.project.assignment.services.product.CatalogVersion;
+import com.project.assignment.services.product.ProductCache;
+import com.project.assignment.services.product.ProductCursor;
+import com.project.assignment.services.product.ProductExportService;
+import com.project.assignment.services.product.ProductImportService;
 import com.project.assignment.services.product.ProductRestService;
+import com.project.assignment.services.product.ProductSearchIndex;
 import com.project.assignment.services.product_image.ProductImageRestService;
+import com.project.assignment.services.upload.UploadWriter;
 import com.project.assignment.systems.NotFoundException;
+import com.project.assignment.utilities.ETags;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static com.project.assignment.utilities.FileUploader.storeFile;
 
@@ -40,6 +56,13 @@ public class ProductRestController {
     private final ProductRepository productRepository;
     private final ProductImageRepository productImageRepository;
     private final ProductRestService productRestService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductExportService productExportService;
+    private final ProductImportService productImportService;
+    private final CatalogVersion catalogVersion;
+    private final ProductCache productCache;
+    private final InventoryService inventoryService;
+    private final UploadWriter uploadWriter;
 
     @PostMapping
     public ResponseEntity<?> createProduct(@Valid @RequestBody ProductDTO productDTO, BindingResult bindingResult) {
@@ -58,47 +81,67 @@ public class ProductRestController {
         }
     }
 
+    /* Import hàng loạt từ CSV (text/csv) hoặc NDJSON (application/x-ndjson) gửi thẳng trong body, trả về số dòng thành công/thất bại
+       và lỗi của từng dòng. Không dùng multipart để giới hạn product.import.max-size chỉ áp dụng cho endpoint này */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> importProducts(HttpServletRequest request,
+                                            @RequestParam(value = "format", required = false) String format) {
+        try {
+            if (request.getContentLengthLong() > productImportService.getMaxSize()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body("File is too large! Maximum size is " + DataSize.ofBytes(productImportService.getMaxSize()).toMegabytes() + "MB");
+            }
+            if (request.getContentLengthLong() == 0) {
+                return ResponseEntity.badRequest().body("File is empty");
+            }
+            String resolvedFormat = ProductImportService.resolveFormat(format, MediaType.parseMediaType(request.getContentType()).getSubtype());
+            return ResponseEntity.ok().body(productImportService.importProducts(request.getInputStream(), resolvedFormat));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /* Kiểm tra tất cả file và số ảnh hiện có (một câu query) trước khi ghi, sau đó ghi các file song song
+       và insert tất cả ảnh trong một transaction */
     @PostMapping(value = "/uploads/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadImages(@ModelAttribute List<MultipartFile> files, @PathVariable("id") int id) {
         try {
-            Product product = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
             //Nếu không có files thì tạo mảng rỗng
             files = files == null ? new ArrayList<>() : files;
             if (files.size() > ProductImage.MAXIMUM_IMAGE_PER_PRODUCT) {
                 return ResponseEntity.badRequest().body("Cant upload more than " + ProductImage.MAXIMUM_IMAGE_PER_PRODUCT + " images");
             }
-            List<ProductImage> productImages = new ArrayList<>();
+            List<MultipartFile> images = new ArrayList<>();
             for (MultipartFile file : files) {
-                if (file != null && !file.isEmpty()) {
-                    if (file.getSize() == 0) {
-                        continue;
-                    }
-                    // Kiểm tra kích thước file
-                    if (file.getSize() > 10 * 1024 * 1024) {
-                        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("File is too large! Maximum size is 10MB");
-                    }
-
-                    // Kiểm tra định dạng
-                    String contentType = file.getContentType();
-                    if (contentType == null || !contentType.startsWith("image/")) {
-                        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("File must be an image");
-                    }
+                if (file == null || file.isEmpty()) {
+                    continue;
+                }
+                // Kiểm tra kích thước file
+                if (file.getSize() > 10 * 1024 * 1024) {
+                    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("File is too large! Maximum size is 10MB");
+                }
 
-                    int size = productImageRepository.findByProduct(product).size();
-                    if (size >= ProductImage.MAXIMUM_IMAGE_PER_PRODUCT) {
-                        return ResponseEntity.badRequest().body(Collections.singletonMap("message", "Maximum size is " + ProductImage.MAXIMUM_IMAGE_PER_PRODUCT + " images"));
-                    }
-                    //Lưu file và cập nhật thumbnail trong DTO
-                    String fileName = storeFile(file, "product_images");
-                    ProductImage productImage = productImageRestService.createProductImage(
-                            product.getId(),
-                            ProductImageDTO
-                                    .builder()
-                                    .url(fileName)
-                                    .build()
-                    );
-                    productImages.add(productImage);
+                // Kiểm tra định dạng
+                String contentType = file.getContentType();
+                if (contentType == null || !contentType.startsWith("image/")) {
+                    return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("File must be an image");
                 }
+                images.add(file);
+            }
+            long size = productRepository.countImagesById(id).orElseThrow(() -> new RuntimeException("Product not found"));
+            if (size + images.size() > ProductImage.MAXIMUM_IMAGE_PER_PRODUCT) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("message", "Maximum size is " + ProductImage.MAXIMUM_IMAGE_PER_PRODUCT + " images"));
+            }
+            if (images.isEmpty()) {
+                return ResponseEntity.ok().body(List.of());
+            }
+            List<String> fileNames = uploadWriter.storeAll(images, "product_images");
+            List<ProductImage> productImages;
+            try {
+                productImages = productImageRestService.createProductImages(id, fileNames);
+            } catch (RuntimeException e) {
+                uploadWriter.releaseAll(fileNames, "product_images");
+                throw e;
             }
             List<ProductImageResponse> productImageResponses = productImages
                     .stream()
@@ -110,23 +153,132 @@ public class ProductRestController {
         }
     }
 
+    //Danh sách dùng ETag theo version của cả catalog, If-None-Match khớp thì trả 304 trước khi query
     @GetMapping
-    public ResponseEntity<?> getAllProducts(@RequestParam("page") int page, @RequestParam("limit") int limit) {
+    public ResponseEntity<?> getAllProducts(@RequestParam("page") int page,
+                                            @RequestParam("limit") int limit,
+                                            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+                                            WebRequest webRequest) {
+        String etag = catalogVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         PageRequest pageRequest = PageRequest.of(page, limit);
-        List<Product> products = productService.getAllProducts(pageRequest).getContent();
-        //Convert sang productresponse
-        int totalPages = productRestService.getAllProducts(pageRequest).getTotalPages();
-        int totalElements = (int) productRestService.getAllProducts(pageRequest).getTotalElements();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(productService.getProductList(pageRequest, withTotal));
+    }
+
+    //Chế độ cursor: bật khi có tham số cursor (để trống cho trang đầu)
+    @GetMapping(params = "cursor")
+    public ResponseEntity<?> scrollProducts(@RequestParam("cursor") String cursor,
+                                            @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                            @RequestParam(value = "sort", defaultValue = ProductCursor.SORT_NAME) String sort,
+                                            @RequestParam(value = "category_id", required = false) Integer categoryId,
+                                            WebRequest webRequest) {
+        String etag = catalogVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .body(productService.scrollProducts(categoryId, sort, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam("q") String query,
+                                            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (!productSearchIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Search index is not ready");
+        }
+        return ResponseEntity.ok().body(productService.searchProducts(query, Math.min(limit, 100)));
+    }
+
+    //Export toàn bộ catalog dạng NDJSON, nén gzip khi có gzip=true hoặc client gửi Accept-Encoding: gzip
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                WebRequest webRequest) {
+        //Export toàn bộ catalog chạy lâu hơn async timeout mặc định, chỉ nới timeout cho request này
+        WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest().setTimeout(productExportService.getTimeout().toMillis());
+        boolean compress = gzip || acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            if (compress) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 8192);
+                productExportService.exportCatalog(gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                productExportService.exportCatalog(outputStream);
+            }
+        };
+        //Response khác nhau theo Accept-Encoding, cache trung gian không được trả bản nén cho client không nhận gzip
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compress) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
 
-        List<ProductResponse> productResponses = productService.productResponseList(products);
+    /* Theo RFC 9110: gzip (hoặc x-gzip) được nhận khi có q > 0, "gzip;q=0" là từ chối.
+       Không ghi gzip thì theo "*" nếu có */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Float gzipQuality = null;
+        Float anyQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                    try {
+                        quality = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        Float quality = gzipQuality != null ? gzipQuality : anyQuality;
+        return quality != null && quality > 0;
+    }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getProductCacheStats() {
+        return ResponseEntity.ok().body(productCache.stats());
+    }
 
-        return ResponseEntity.ok().body(ListProductResponse
-                .builder()
-                .products(productResponses)
-                .totalPages(totalPages)
-                .totalItems(totalElements)
-                .build());
+    //available = null nghĩa là product không giới hạn số lượng
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<?> getProductStock(@PathVariable("id") int id) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(Collections.singletonMap("available", inventoryService.getAvailable(id)));
+    }
+
+    @PostMapping("/{id}/stock")
+    public ResponseEntity<?> adjustProductStock(@PathVariable("id") int id, @RequestParam("delta") int delta) {
+        try {
+            return ResponseEntity.ok().body(Collections.singletonMap("available", inventoryService.adjustStock(id, delta)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/images")
@@ -135,11 +287,21 @@ public class ProductRestController {
         return ResponseEntity.ok(productImageResponses);
     }
 
+    //ETag ghép từ version của product và của category (tên category nằm trong response)
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable("id") int id) {
+    public ResponseEntity<?> getProductById(@PathVariable("id") int id, WebRequest webRequest) {
+        String etag = productRepository.findVersionRowById(id)
+                .map(row -> ETags.strong("product", id, row.getVersion(), row.getCategoryVersion()))
+                .orElse(null);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
         try {
             ProductResponse productResponse = productService.getProduct(id);
-            return ResponseEntity.ok(productResponse);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .body(productResponse);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -223,7 +385,7 @@ public class ProductRestController {
 
     @DeleteMapping("/images/{id}")
     public ResponseEntity<?> deleteProductImage(@PathVariable("id") int id) {
-        productImageRepository.deleteById(id);
+        productImageRestService.deleteProductImageById(id);
         return ResponseEntity.ok().body(Collections.singletonMap("message", "Product image deleted"));
     }
 
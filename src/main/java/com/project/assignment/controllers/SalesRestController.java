@@ -0,0 +1,40 @@
+package com.project.assignment.controllers;
+
+import com.project.assignment.services.sales.SalesReportService;
+import com.project.assignment.services.sales.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("${api.prefix}/sales")
+@CrossOrigin(origins = "http://127.0.0.1:5500")
+public class SalesRestController {
+    private final SalesReportService salesReportService;
+    private final SalesRollupService salesRollupService;
+
+    //Mặc định 30 ngày gần nhất
+    @GetMapping("/report")
+    public ResponseEntity<?> getReport(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(salesReportService.getReport(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    //Backfill: tính lại toàn bộ rollup từ orders/order_details
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuildRollups() {
+        return ResponseEntity.ok().body(Collections.singletonMap("rows", salesRollupService.rebuild()));
+    }
+}
@@ -0,0 +1,169 @@
+package com.project.assignment.controllers;
+
+import com.project.assignment.services.upload.UploadedFiles;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+/* Phục vụ file trong /uploads thay cho resource handler mặc định.
+   File lớn được giao cho Tomcat gửi bằng sendfile, không đi qua heap. Container không hỗ trợ thì dùng FileChannel.transferTo.
+   Tên theo hash nội dung được cache vĩnh viễn (immutable), file cũ thì cache ngắn và hỏi lại bằng If-Modified-Since/ETag */
+@Controller
+@RequiredArgsConstructor
+public class UploadController {
+    private static final String PREFIX = "/uploads/";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "public, max-age=3600";
+    //Giống sendfileSize mặc định của DefaultServlet, file nhỏ hơn thì ghi thẳng rẻ hơn
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final UploadedFiles uploadedFiles;
+
+    @GetMapping("/uploads/**")
+    public void serve(HttpServletRequest request, HttpServletResponse response, WebRequest webRequest) throws IOException {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request).substring(PREFIX.length());
+        UploadedFiles.UploadedFile file = uploadedFiles.find(path);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, file.isImmutable() ? IMMUTABLE : REVALIDATE);
+        if (webRequest.checkNotModified(file.getEtag(), file.getLastModified())) {
+            return;
+        }
+        response.setContentType(file.getContentType());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = file.getSize() - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeStillValid(request, file)) {
+            long[] bounds = parseRange(range, file.getSize());
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getSize());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.getSize());
+            }
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (length >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            //Tomcat chỉ mở file sau khi response đã commit, file đã bị xoá thì phải trả 404 từ đây
+            if (!Files.isRegularFile(file.getPath())) {
+                notFound(path, response);
+                return;
+            }
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            //end của Tomcat là vị trí sau byte cuối
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (NoSuchFileException e) {
+            notFound(path, response);
+        }
+    }
+
+    //File vừa bị xoá sau khi metadata được cache
+    private void notFound(String path, HttpServletResponse response) throws IOException {
+        uploadedFiles.evict(path);
+        if (!response.isCommitted()) {
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    //If-Range không khớp (file đã đổi) thì trả cả file
+    private static boolean rangeStillValid(HttpServletRequest request, UploadedFiles.UploadedFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(file.getEtag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == file.getLastModified();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /* Chỉ hỗ trợ một khoảng: bytes=a-b, bytes=a-, bytes=-n. Trả về null nếu bỏ qua Range (nhiều khoảng, sai cú pháp)
+       và trả cả file như RFC 9110 cho phép, mảng rỗng nếu khoảng nằm ngoài file */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return new long[0];
+                }
+                return new long[]{Math.max(0, size - suffix), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= size) {
+                return new long[0];
+            }
+            return new long[]{start, Math.min(end, size - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
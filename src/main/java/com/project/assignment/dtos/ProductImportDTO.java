@@ -0,0 +1,30 @@
+package com.project.assignment.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* Một dòng trong file import sản phẩm (CSV hoặc NDJSON) */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportDTO {
+    private String name;
+
+    private Float price;
+
+    private String description;
+
+    @JsonProperty("category_id")
+    private Integer categoryId;
+
+    private List<String> images = new ArrayList<>();
+}
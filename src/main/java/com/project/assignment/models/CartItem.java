@@ -0,0 +1,42 @@
+package com.project.assignment.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/* Một dòng giỏ hàng đã lưu của user, chỉ giữ id để ghi không cần load User/Product */
+@Getter
+@Setter
+@Entity
+@Table(name = "cart_items")
+@IdClass(CartItem.Key.class)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItem {
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    private Integer qty;
+
+    @Column(name = "unit_cents")
+    private Long unitCents;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer userId;
+        private Integer productId;
+    }
+}
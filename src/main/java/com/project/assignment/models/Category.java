@@ -22,6 +22,9 @@ public class Category {
     @NotEmpty(message = "name is required")
     private String name;
 
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "category", cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     private List<Product> products = new ArrayList<>();
 
@@ -4,13 +4,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
+//Dòng trong giỏ hàng chỉ giữ id, tên và giá tại thời điểm thêm vào, không giữ entity Product
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Item {
     private Integer id;
     private String name;
-    private Float price;
+    private BigDecimal price;
     private Integer qty;
-    private Product product;
 }
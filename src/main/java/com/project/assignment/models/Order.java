@@ -10,8 +10,10 @@ import java.util.List;
 @Entity
 @Table(name = "orders")
 public class Order {
+    //Sequence thay vì IDENTITY để order và các order detail được insert bằng JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Integer id;
 
     @Temporal(TemporalType.DATE)
@@ -21,6 +23,16 @@ public class Order {
     @Column(name = "total_money")
     private Float totalMoney;
 
+    //Chỉ có với đơn đi qua hàng đợi, null với đơn đặt đồng bộ
+    private String reference;
+
+    //Key chống gửi trùng của checkout, null nếu client không gửi
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    @Column(name = "stock_applied")
+    private boolean stockApplied;
+
     @ManyToOne
     private User user;
 
@@ -7,8 +7,10 @@ import lombok.Data;
 @Entity
 @Table(name = "order_details")
 public class OrderDetail {
+    //Sequence thay vì IDENTITY để order và các order detail được insert bằng JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_details_seq")
+    @SequenceGenerator(name = "order_details_seq", sequenceName = "order_details_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "number_of_product")
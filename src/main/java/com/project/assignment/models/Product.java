@@ -16,8 +16,10 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 public class Product {
+    //Dùng sequence thay vì IDENTITY để Hibernate có thể gom insert thành JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Integer id;
 
     private String name;
@@ -34,6 +36,10 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDate updateDate;
 
+    //Tăng ở mọi lần ghi product hoặc ảnh của product, dùng làm ETag
+    @Version
+    private Long version;
+
     @ManyToOne
     @JoinColumn(name = "category_id")
     private Category category;
@@ -12,14 +12,47 @@ import lombok.*;
 @Builder
 public class ProductImage {
     public static final int MAXIMUM_IMAGE_PER_PRODUCT = 5;
+    //Chiều rộng các bản thu nhỏ: ô nhỏ trong admin/tab ảnh, thẻ sản phẩm ở trang danh sách, ảnh chính trang chi tiết
+    public static final int THUMBNAIL_WIDTH = 150;
+    public static final int CARD_WIDTH = 400;
+    public static final int DETAIL_WIDTH = 800;
+    public static final int[] VARIANT_WIDTHS = {THUMBNAIL_WIDTH, CARD_WIDTH, DETAIL_WIDTH};
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_img_seq")
+    @SequenceGenerator(name = "product_img_seq", sequenceName = "product_img_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "img_url")
     private String url;
 
+    //Đổi url thì phải đặt lại null để bản thu nhỏ được tạo lại
+    @Column(name = "variant_widths", length = 50)
+    private String variantWidths;
+
     @ManyToOne
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
+
+    /* Bản thu nhỏ nhỏ nhất mà vẫn rộng ít nhất width, chưa tạo xong hoặc ảnh gốc đã nhỏ hơn thì dùng ảnh gốc */
+    public String urlFor(int width) {
+        if (url == null || variantWidths == null || variantWidths.isEmpty()) {
+            return url;
+        }
+        int best = 0;
+        for (String value : variantWidths.split(",")) {
+            int variantWidth = Integer.parseInt(value);
+            if (variantWidth >= width && (best == 0 || variantWidth < best)) {
+                best = variantWidth;
+            }
+        }
+        return best == 0 ? url : variantUrl(url, best);
+    }
+
+    //ab/cd/<sha>.png -> ab/cd/<sha>_w400.jpg, bản thu nhỏ luôn là JPEG
+    public static String variantUrl(String url, int width) {
+        int dot = url.lastIndexOf('.');
+        int slash = url.lastIndexOf('/');
+        String base = dot > slash ? url.substring(0, dot) : url;
+        return base + "_w" + width + ".jpg";
+    }
 }
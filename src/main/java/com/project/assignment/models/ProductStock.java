@@ -0,0 +1,20 @@
+package com.project.assignment.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/* Tồn kho đã ghi xuống database, số khả dụng thực tế nằm trong bộ nhớ (InventoryService) */
+@Getter
+@Setter
+@Entity
+@Table(name = "product_stock")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStock {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    private Integer quantity;
+}
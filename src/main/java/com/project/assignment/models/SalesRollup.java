@@ -0,0 +1,51 @@
+package com.project.assignment.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/* Số liệu bán hàng đã cộng dồn của một ngày theo một chiều (cả ngày, một category hoặc một product) */
+@Getter
+@Setter
+@Entity
+@Table(name = "sales_rollups")
+@IdClass(SalesRollup.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollup {
+    public static final String DAY = "day";
+    public static final String CATEGORY = "category";
+    public static final String PRODUCT = "product";
+
+    @Id
+    @Column(length = 10)
+    private String dimension;
+
+    @Id
+    @Column(name = "dim_id")
+    private Integer dimId;
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Column(name = "order_count")
+    private Long orderCount;
+
+    @Column(name = "item_count")
+    private Long itemCount;
+
+    @Column(name = "revenue_cents")
+    private Long revenueCents;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String dimension;
+        private Integer dimId;
+        private LocalDate salesDate;
+    }
+}
@@ -0,0 +1,17 @@
+package com.project.assignment.repositories;
+
+import com.project.assignment.models.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface CartItemRepository extends JpaRepository<CartItem, CartItem.Key> {
+    List<CartItem> findByUserId(Integer userId);
+
+    //Xoá bằng một câu DELETE thay vì load từng dòng rồi xoá như deleteBy... mặc định
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.userId = ?1")
+    int deleteAllByUserId(Integer userId);
+}
@@ -2,8 +2,25 @@ package com.project.assignment.repositories;
 
 import com.project.assignment.models.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
+
+    //Projection chỉ lấy id và tên, không đụng tới collection products
+    interface NameRow {
+        Integer getId();
+
+        String getName();
+    }
+
+    @Query("SELECT c.id AS id, c.name AS name FROM Category c ORDER BY c.id")
+    List<NameRow> findAllNames();
+
+    @Query("SELECT c.version FROM Category c WHERE c.id = ?1")
+    Optional<Long> findVersionById(Integer id);
 }
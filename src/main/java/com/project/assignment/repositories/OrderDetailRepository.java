@@ -2,6 +2,41 @@ package com.project.assignment.repositories;
 
 import com.project.assignment.models.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderDetailRepository extends JpaRepository<OrderDetail, Integer> {
+    interface ProductQuantity {
+        Integer getProductId();
+
+        Long getQuantity();
+    }
+
+    interface LineRow {
+        Integer getOrderId();
+
+        Integer getProductId();
+
+        String getProductName();
+
+        Integer getQty();
+
+        Float getPrice();
+    }
+
+    //Dòng của cả trang đơn hàng trong một câu, chỉ join lấy tên product, không load Product/ProductImage
+    @Query("SELECT d.order.id AS orderId, p.id AS productId, p.name AS productName, d.qty AS qty, d.price AS price " +
+            "FROM OrderDetail d JOIN d.product p WHERE d.order.id IN ?1 ORDER BY d.id")
+    List<LineRow> findLinesByOrderIds(Collection<Integer> orderIds);
+
+    @Query("SELECT d.product.id AS productId, SUM(d.qty) AS quantity FROM OrderDetail d " +
+            "WHERE d.order.id IN ?1 GROUP BY d.product.id")
+    List<ProductQuantity> sumQuantityByProduct(Collection<Integer> orderIds);
+
+    //Số lượng đã bán nhưng chưa trừ vào product_stock
+    @Query("SELECT d.product.id AS productId, SUM(d.qty) AS quantity FROM OrderDetail d " +
+            "WHERE d.order.stockApplied = false GROUP BY d.product.id")
+    List<ProductQuantity> sumPendingQuantityByProduct();
 }
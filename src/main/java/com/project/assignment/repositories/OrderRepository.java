@@ -1,7 +1,71 @@
 package com.project.assignment.repositories;
 
 import com.project.assignment.models.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Integer> {
+    //Chỉ các cột của orders, không load User hay OrderDetail
+    interface OrderRow {
+        Integer getId();
+
+        Date getOrderDate();
+
+        Float getTotalMoney();
+
+        Integer getUserId();
+
+        String getReference();
+    }
+
+    //Keyset theo id giảm dần, đọc trên index (user_id, id) đã INCLUDE các cột trả về
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.totalMoney AS totalMoney, o.user.id AS userId, o.reference AS reference " +
+            "FROM Order o WHERE o.user.id = ?1 AND o.id < ?2 ORDER BY o.id DESC")
+    List<OrderRow> findHistoryByUser(Integer userId, Integer beforeId, Pageable pageable);
+
+    //Như findHistoryByUser nhưng chỉ lấy đơn trong khoảng ngày, đơn không có order_date bị loại
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.totalMoney AS totalMoney, o.user.id AS userId, o.reference AS reference " +
+            "FROM Order o WHERE o.user.id = ?1 AND o.orderDate BETWEEN ?2 AND ?3 AND o.id < ?4 ORDER BY o.id DESC")
+    List<OrderRow> findHistoryByUserBetween(Integer userId, Date from, Date to, Integer beforeId, Pageable pageable);
+
+    //Keyset theo (order_date, id) giảm dần để index (order_date DESC, id DESC) vừa lọc khoảng ngày vừa cho sẵn thứ tự
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.totalMoney AS totalMoney, o.user.id AS userId, o.reference AS reference " +
+            "FROM Order o WHERE o.orderDate BETWEEN ?1 AND ?2 AND (o.orderDate < ?3 OR (o.orderDate = ?3 AND o.id < ?4)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderRow> findHistory(Date from, Date to, Date beforeDate, Integer beforeId, Pageable pageable);
+
+    /* Không lọc ngày: đơn có ngày theo keyset như findHistory, sau đó tới các đơn không có order_date
+       (SQL Server và H2 đều xếp NULL cuối cùng khi DESC, cùng thứ tự với index) */
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.totalMoney AS totalMoney, o.user.id AS userId, o.reference AS reference " +
+            "FROM Order o WHERE o.orderDate < ?1 OR (o.orderDate = ?1 AND o.id < ?2) OR o.orderDate IS NULL " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderRow> findHistoryAll(Date beforeDate, Integer beforeId, Pageable pageable);
+
+    //Trang tiếp theo khi đơn cuối của trang trước không có order_date
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.totalMoney AS totalMoney, o.user.id AS userId, o.reference AS reference " +
+            "FROM Order o WHERE o.orderDate IS NULL AND o.id < ?1 ORDER BY o.id DESC")
+    List<OrderRow> findHistoryUndated(Integer beforeId, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.reference = ?1")
+    Optional<Integer> findIdByReference(String reference);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = ?1 AND o.idempotencyKey = ?2")
+    Optional<Integer> findIdByUserIdAndIdempotencyKey(Integer userId, String idempotencyKey);
+
+    @Query("SELECT o.reference FROM Order o WHERE o.reference IN ?1")
+    List<String> findExistingReferences(Collection<String> references);
+
+    @Query("SELECT o.id FROM Order o WHERE o.stockApplied = false ORDER BY o.id")
+    List<Integer> findStockPendingIds(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.stockApplied = true WHERE o.id IN ?1")
+    int markStockApplied(Collection<Integer> orderIds);
 }
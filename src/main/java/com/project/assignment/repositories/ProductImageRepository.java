@@ -2,17 +2,53 @@ package com.project.assignment.repositories;
 
 import com.project.assignment.models.Product;
 import com.project.assignment.models.ProductImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, Integer> {
+    interface VariantSource {
+        Integer getId();
+
+        Integer getProductId();
+
+        String getUrl();
+    }
 
     @Query("SELECT o FROM ProductImage o where o.product.category.id = ?1")
     ProductImage findByProductId(Integer categoryId);
 
     List<ProductImage> findByProduct(Product product);
+
+    //Lấy ảnh của cả một trang sản phẩm trong một câu query
+    @Query("SELECT o FROM ProductImage o WHERE o.product.id IN ?1 ORDER BY o.product.id, o.id")
+    List<ProductImage> findByProductIds(Collection<Integer> productIds);
+
+    @Query("SELECT o.url FROM ProductImage o WHERE o.id = ?1")
+    Optional<String> findUrlById(Integer id);
+
+    //Url ảnh của một sản phẩm, để bỏ tham chiếu tới file khi sản phẩm bị xoá
+    @Query("SELECT o.url FROM ProductImage o WHERE o.product.id = ?1 AND o.url IS NOT NULL")
+    List<String> findUrlsByProductId(Integer productId);
+
+    //Các url trong danh sách còn được ảnh nào dùng, cho job dọn file upload
+    @Query("SELECT DISTINCT o.url FROM ProductImage o WHERE o.url IN ?1")
+    List<String> findUrlsIn(Collection<String> urls);
+
+    //Ảnh chưa có bản thu nhỏ, cho job tạo bù
+    @Query("SELECT o.id AS id, o.product.id AS productId, o.url AS url FROM ProductImage o " +
+            "WHERE o.variantWidths IS NULL AND o.url IS NOT NULL ORDER BY o.id")
+    List<VariantSource> findVariantSources(Pageable pageable);
+
+    //Chỉ ghi nếu url chưa bị đổi trong lúc tạo bản thu nhỏ
+    @Modifying
+    @Query("UPDATE ProductImage o SET o.variantWidths = ?3 WHERE o.id = ?1 AND o.url = ?2")
+    int updateVariantWidths(Integer id, String url, String variantWidths);
 }
@@ -2,16 +2,147 @@ package com.project.assignment.repositories;
 
 import com.project.assignment.models.Category;
 import com.project.assignment.models.Product;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
 
+    //Projection chỉ lấy các cột cần cho index tìm kiếm
+    interface SearchText {
+        Integer getId();
+
+        String getName();
+
+        String getDescription();
+    }
+
+    //Projection cho facet index của trang shop
+    interface FacetRow {
+        Integer getId();
+
+        String getName();
+
+        Float getPrice();
+
+        LocalDate getCreateDate();
+
+        Integer getCategoryId();
+    }
+
+    //Một dòng của export: product kèm category và một ảnh (null nếu không có ảnh)
+    interface CatalogRow {
+        Integer getId();
+
+        String getName();
+
+        Float getPrice();
+
+        String getDescription();
+
+        LocalDate getCreateDate();
+
+        LocalDate getUpdateDate();
+
+        Integer getCategoryId();
+
+        String getCategoryName();
+
+        Integer getImageId();
+
+        String getImageUrl();
+    }
+
+    //Version của product và category của nó, đủ để tính ETag mà không cần load entity
+    interface VersionRow {
+        Long getVersion();
+
+        Long getCategoryVersion();
+    }
+
+    @EntityGraph(attributePaths = "category")
     Page<Product> findByCategory(Category category, Pageable pageable);
 
+    @EntityGraph(attributePaths = "category")
     Page<Product> findAll(Pageable pageable);
+
+    //Một câu IN kèm category, không select category riêng cho từng product
+    @EntityGraph(attributePaths = "category")
+    List<Product> findAllById(Iterable<Integer> ids);
+
+    //Chỉ lấy nội dung trang, không chạy kèm câu COUNT
+    @EntityGraph(attributePaths = "category")
+    Slice<Product> findAllBy(Pageable pageable);
+
+    //Keyset: seek theo (giá trị sort, id) của dòng cuối thay vì OFFSET
+    @EntityGraph(attributePaths = "category")
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(attributePaths = "category")
+    Window<Product> findAllByCategoryId(Integer categoryId, ScrollPosition position, Sort sort, Limit limit);
+
+    //Product kèm category và ảnh trong một câu query, dùng để tạo ProductSnapshot
+    @EntityGraph(attributePaths = {"category", "productImages"})
+    Optional<Product> findWithImagesById(Integer id);
+
+    List<SearchText> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    Optional<SearchText> findTextById(Integer id);
+
+    @Query("SELECT p.id AS id, p.name AS name, p.price AS price, p.createDate AS createDate, p.category.id AS categoryId " +
+            "FROM Product p WHERE p.id > ?1 ORDER BY p.id")
+    List<FacetRow> findFacetRowsAfter(Integer id, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.name AS name, p.price AS price, p.createDate AS createDate, p.category.id AS categoryId " +
+            "FROM Product p WHERE p.id = ?1")
+    Optional<FacetRow> findFacetRowById(Integer id);
+
+    //Các id trong danh sách còn product, product đã bị xoá thì không có trong kết quả
+    @Query("SELECT p.id FROM Product p WHERE p.id IN ?1")
+    List<Integer> findExistingIds(Collection<Integer> ids);
+
+    //Cursor chỉ đọc tiến, sắp theo product id để các dòng của cùng một product nằm liền nhau
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id AS id, p.name AS name, p.price AS price, p.description AS description, " +
+            "p.createDate AS createDate, p.updateDate AS updateDate, c.id AS categoryId, c.name AS categoryName, " +
+            "i.id AS imageId, i.url AS imageUrl " +
+            "FROM Product p JOIN p.category c LEFT JOIN p.productImages i ORDER BY p.id, i.id")
+    Stream<CatalogRow> streamCatalog();
+
+    @Query("SELECT p.version FROM Product p WHERE p.id = ?1")
+    Optional<Long> findVersionById(Integer id);
+
+    @Query("SELECT p.version AS version, c.version AS categoryVersion FROM Product p LEFT JOIN p.category c WHERE p.id = ?1")
+    Optional<VersionRow> findVersionRowById(Integer id);
+
+    //Số ảnh hiện có của sản phẩm, rỗng nếu không có sản phẩm. Kiểm tra sản phẩm và đếm ảnh trong một câu query
+    @Query("SELECT COUNT(i) FROM Product p LEFT JOIN p.productImages i WHERE p.id = ?1 GROUP BY p.id")
+    Optional<Long> countImagesById(Integer id);
+
+    //Ảnh thay đổi thì response của product cũng thay đổi, nên version của product phải tăng theo
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.version = p.version + 1 WHERE p.id = ?1")
+    int incrementVersion(Integer id);
 }
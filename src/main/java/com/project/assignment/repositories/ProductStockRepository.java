@@ -0,0 +1,13 @@
+package com.project.assignment.repositories;
+
+import com.project.assignment.models.ProductStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface ProductStockRepository extends JpaRepository<ProductStock, Integer> {
+    //Cộng/trừ ngay trong câu UPDATE, không đọc dòng lên trước
+    @Modifying
+    @Query("UPDATE ProductStock s SET s.quantity = s.quantity + ?2 WHERE s.productId = ?1")
+    int addQuantity(Integer productId, int delta);
+}
@@ -0,0 +1,69 @@
+package com.project.assignment.repositories;
+
+import com.project.assignment.models.SalesRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, SalesRollup.Key> {
+    interface TotalRow {
+        Integer getDimId();
+
+        Long getOrderCount();
+
+        Long getItemCount();
+
+        Long getRevenueCents();
+    }
+
+    //Cộng delta vào dòng đã có hoặc tạo dòng mới, một câu cho mỗi key
+    @Modifying
+    @Query(value = "MERGE INTO sales_rollups AS t " +
+            "USING (VALUES (?1, ?2, ?3, ?4, ?5, ?6)) AS s (dimension, dim_id, sales_date, order_count, item_count, revenue_cents) " +
+            "ON t.dimension = s.dimension AND t.dim_id = s.dim_id AND t.sales_date = s.sales_date " +
+            "WHEN MATCHED THEN UPDATE SET order_count = t.order_count + s.order_count, " +
+            "item_count = t.item_count + s.item_count, revenue_cents = t.revenue_cents + s.revenue_cents " +
+            "WHEN NOT MATCHED THEN INSERT (dimension, dim_id, sales_date, order_count, item_count, revenue_cents) " +
+            "VALUES (s.dimension, s.dim_id, s.sales_date, s.order_count, s.item_count, s.revenue_cents);", nativeQuery = true)
+    int merge(String dimension, int dimId, LocalDate salesDate, long orderCount, long itemCount, long revenueCents);
+
+    @Query("SELECT r FROM SalesRollup r WHERE r.dimension = ?1 AND r.salesDate BETWEEN ?2 AND ?3 ORDER BY r.salesDate")
+    List<SalesRollup> findByDimension(String dimension, LocalDate from, LocalDate to);
+
+    //Tổng của từng category/product trong khoảng ngày, số dòng đọc = số ngày x số category/product có bán
+    @Query("SELECT r.dimId AS dimId, SUM(r.orderCount) AS orderCount, SUM(r.itemCount) AS itemCount, SUM(r.revenueCents) AS revenueCents " +
+            "FROM SalesRollup r WHERE r.dimension = ?1 AND r.salesDate BETWEEN ?2 AND ?3 " +
+            "GROUP BY r.dimId ORDER BY SUM(r.revenueCents) DESC")
+    List<TotalRow> sumByDimension(String dimension, LocalDate from, LocalDate to, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM SalesRollup r")
+    int deleteAllRollups();
+
+    /* Build lại từ orders/order_details, chỉ dùng cho backfill. Tiền được làm tròn về cent từng dòng như lúc cộng trong bộ nhớ */
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollups (dimension, dim_id, sales_date, order_count, item_count, revenue_cents) " +
+            "SELECT 'day', 0, o.order_date, COUNT(DISTINCT o.id), SUM(d.number_of_product), " +
+            "SUM(CAST(ROUND(d.price * 100, 0) AS BIGINT) * d.number_of_product) " +
+            "FROM orders o JOIN order_details d ON d.order_id = o.id GROUP BY o.order_date", nativeQuery = true)
+    int rebuildDays();
+
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollups (dimension, dim_id, sales_date, order_count, item_count, revenue_cents) " +
+            "SELECT 'category', COALESCE(p.category_id, 0), o.order_date, COUNT(DISTINCT o.id), SUM(d.number_of_product), " +
+            "SUM(CAST(ROUND(d.price * 100, 0) AS BIGINT) * d.number_of_product) " +
+            "FROM orders o JOIN order_details d ON d.order_id = o.id JOIN products p ON p.id = d.product_id " +
+            "GROUP BY COALESCE(p.category_id, 0), o.order_date", nativeQuery = true)
+    int rebuildCategories();
+
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollups (dimension, dim_id, sales_date, order_count, item_count, revenue_cents) " +
+            "SELECT 'product', d.product_id, o.order_date, COUNT(DISTINCT o.id), SUM(d.number_of_product), " +
+            "SUM(CAST(ROUND(d.price * 100, 0) AS BIGINT) * d.number_of_product) " +
+            "FROM orders o JOIN order_details d ON d.order_id = o.id GROUP BY d.product_id, o.order_date", nativeQuery = true)
+    int rebuildProducts();
+}
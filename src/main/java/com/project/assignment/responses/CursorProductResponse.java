@@ -0,0 +1,16 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorProductResponse {
+    private List<ProductResponse> products;
+    private String nextCursor;
+    private String prevCursor;
+}
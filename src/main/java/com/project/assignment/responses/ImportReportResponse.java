@@ -0,0 +1,28 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportReportResponse {
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    //Chỉ giữ tối đa một số lỗi đầu tiên, errorsTruncated = true khi có nhiều hơn
+    private List<RowError> errors;
+    private boolean errorsTruncated;
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        private final int line;
+        private final String message;
+    }
+}
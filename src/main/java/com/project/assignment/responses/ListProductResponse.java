@@ -11,6 +11,8 @@ import java.util.List;
 @Builder
 public class ListProductResponse {
     private List<ProductResponse> products;
-    private int totalPages;
-    private int totalItems;
+    //null khi client gửi withTotal=false
+    private Integer totalPages;
+    private Integer totalItems;
+    private boolean hasNext;
 }
@@ -0,0 +1,16 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderHistoryResponse {
+    private List<OrderSummaryResponse> orders;
+    //null khi đã tới trang cuối
+    private String nextCursor;
+}
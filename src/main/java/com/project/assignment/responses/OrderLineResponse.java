@@ -0,0 +1,15 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderLineResponse {
+    private Integer productId;
+    private String productName;
+    private Integer qty;
+    private Float price;
+}
@@ -0,0 +1,21 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusResponse {
+    private String reference;
+    private Status status;
+    //Chỉ có khi status = COMPLETED
+    private Integer orderId;
+    //Lý do khi status = FAILED
+    private String message;
+
+    public enum Status {
+        QUEUED, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,20 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSummaryResponse {
+    private Integer id;
+    private Date orderDate;
+    private Float totalMoney;
+    private Integer userId;
+    private String reference;
+    private List<OrderLineResponse> items;
+}
@@ -12,6 +12,8 @@ public class ProductImageResponse {
     private Integer productImageId;
     private Integer productId;
     private String url;
+    //Bản 150px cho lưới admin, chưa có thì là ảnh gốc
+    private String thumbnailUrl;
 
     public static ProductImageResponse of(ProductImage productImage) {
         return ProductImageResponse
@@ -19,6 +21,7 @@ public class ProductImageResponse {
                 .productImageId(productImage.getId())
                 .productId(productImage.getProduct().getId())
                 .url(productImage.getUrl())
+                .thumbnailUrl(productImage.urlFor(ProductImage.THUMBNAIL_WIDTH))
                 .build();
     }
 }
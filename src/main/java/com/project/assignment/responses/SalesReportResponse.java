@@ -0,0 +1,23 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesReportResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private long orderCount;
+    private long itemCount;
+    private BigDecimal revenue;
+    private List<SalesRowResponse> days;
+    private List<SalesRowResponse> categories;
+    private List<SalesRowResponse> topProducts;
+}
@@ -0,0 +1,19 @@
+package com.project.assignment.responses;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesRowResponse {
+    //Ngày (yyyy-MM-dd) hoặc id của category/product
+    private String key;
+    private String name;
+    private long orderCount;
+    private long itemCount;
+    private BigDecimal revenue;
+}
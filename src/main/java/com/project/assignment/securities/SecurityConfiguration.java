@@ -3,6 +3,7 @@ package com.project.assignment.securities;
 
 import com.project.assignment.services.CustomAuthenticationSuccessHandler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -18,11 +19,13 @@ import org.springframework.security.web.SecurityFilterChain;
 @EnableWebSecurity
 public class SecurityConfiguration {
     private final CustomAuthenticationSuccessHandler successHandler;
+    private final String apiPrefix;
 
 
     @Autowired
-    public SecurityConfiguration(CustomAuthenticationSuccessHandler successHandler) {
+    public SecurityConfiguration(CustomAuthenticationSuccessHandler successHandler, @Value("${api.prefix}") String apiPrefix) {
         this.successHandler = successHandler;
+        this.apiPrefix = apiPrefix;
     }
 
     @Bean
@@ -36,13 +39,17 @@ public class SecurityConfiguration {
                         .requestMatchers(HttpMethod.GET, "/admin/**").hasAuthority("true")
                         .requestMatchers(HttpMethod.POST,"/admin/**").hasAuthority("true")
                         .requestMatchers(HttpMethod.GET, "/order").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/" + apiPrefix + "/orders/**").hasAuthority("true")
+                        .requestMatchers("/" + apiPrefix + "/users/me/**").authenticated()
+                        .requestMatchers("/" + apiPrefix + "/sales/**").hasAuthority("true")
+                        .requestMatchers(HttpMethod.POST, "/" + apiPrefix + "/products/*/stock").hasAuthority("true")
+                        .requestMatchers(HttpMethod.POST, "/" + apiPrefix + "/products/import").hasAuthority("true")
                         .anyRequest().permitAll()
                 )
                 .formLogin(form -> form
                         .loginPage("/login")
                         .loginProcessingUrl("/perform_login")
                         .successHandler(successHandler)
-                        .defaultSuccessUrl("/", true)
                         .failureUrl("/login?error=true")
                         .permitAll()
                 )
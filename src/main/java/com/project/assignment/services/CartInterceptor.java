@@ -1,5 +1,6 @@
 package com.project.assignment.services;
 
+import com.project.assignment.services.cart.CartSummary;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -15,8 +16,14 @@ public class CartInterceptor implements HandlerInterceptor {
 
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
-        if (modelAndView != null) {
-            modelAndView.addObject("cart", cartService);
+        //Chỉ tính số lượng/tổng tiền khi template đọc tới, redirect thì không cần
+        if (modelAndView != null && !isRedirect(modelAndView)) {
+            modelAndView.addObject("cart", new CartSummary(cartService));
         }
     }
+
+    private static boolean isRedirect(ModelAndView modelAndView) {
+        String viewName = modelAndView.getViewName();
+        return viewName != null && viewName.startsWith("redirect:");
+    }
 }
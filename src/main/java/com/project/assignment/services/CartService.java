@@ -2,6 +2,7 @@ package com.project.assignment.services;
 
 import com.project.assignment.models.Item;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public interface CartService {
@@ -17,6 +18,9 @@ public interface CartService {
 
     Integer getCount();
 
-    Double getAmount();
+    BigDecimal getAmount();
+
+    //Gộp giỏ của session (chưa đăng nhập) vào giỏ đã lưu của user, gọi lúc đăng nhập thành công
+    void mergeSessionCart(Integer userId);
 
 }
@@ -1,91 +1,210 @@
 package com.project.assignment.services;
 
 import com.project.assignment.models.Item;
-import com.project.assignment.models.Product;
+import com.project.assignment.securities.UserPrincipal;
+import com.project.assignment.services.cart.Cart;
+import com.project.assignment.services.cart.CartLine;
+import com.project.assignment.services.cart.CartPersistence;
+import com.project.assignment.services.cart.CartStore;
+import com.project.assignment.services.product.ProductSnapshot;
 import com.project.assignment.systems.ObjectNotFoundException;
+import com.project.assignment.utilities.Money;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.annotation.SessionScope;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 
-@SessionScope
+/* Singleton, giỏ hàng nằm trong CartStore theo cart key lưu ở session thay vì trong bean session scope.
+   Giỏ của user đã đăng nhập có key theo user id, được load từ database lần đầu dùng
+   và được CartPersistence ghi lại bất đồng bộ, request không bao giờ chờ ghi database */
 @Service
 public class CartServiceImpl implements CartService{
+    public static final String CART_KEY_ATTRIBUTE = "cartKey";
 
     private final ProductService productService;
+    private final CartStore cartStore;
+    private final CartPersistence cartPersistence;
 
     @Autowired
-    public CartServiceImpl(ProductService productService) {
+    public CartServiceImpl(ProductService productService, CartStore cartStore, CartPersistence cartPersistence) {
         this.productService = productService;
+        this.cartStore = cartStore;
+        this.cartPersistence = cartPersistence;
     }
 
-    Map<Integer, Item> map = new HashMap<>();
-
     @Override
     public Item add(Integer id) {
-        Item item = map.get(id);
-        if (item == null) {
-            item = new Item();
-            List<Product> list = this.productService.findAll();
-            Product product = list.stream()
-                    .filter(it -> it.getId().equals(id))
-                    .findFirst()
-                    .orElseThrow(() -> new ObjectNotFoundException("product", id));
-            item.setId(product.getId());
-            item.setName(product.getName());
-            item.setPrice(product.getPrice());
-            item.setQty(1);
-            item.setProduct(product);
-            map.put(id, item);
-        } else {
-            item.setQty(item.getQty() + 1);
+        Integer userId = currentUserId();
+        Cart cart = currentCart(userId);
+        //Chỉ tra cứu product (qua cache snapshot) khi dòng chưa có trong giỏ
+        if (!cart.increment(id, 1)) {
+            ProductSnapshot product = this.productService.findSnapshot(id);
+            cart.add(product.getId(), Money.toCents(product.getPrice()), 1);
         }
-
-        return item;
+        changed(userId, cart);
+        return toItem(cart, id);
     }
 
     @Override
     public void remove(Integer id) {
-        map.remove(id);
+        Integer userId = currentUserId();
+        Cart cart = currentCart(userId);
+        cart.remove(id);
+        changed(userId, cart);
     }
 
     @Override
     public Item update(Integer id, Integer qty) {
-        Item item = map.get(id);
-        item.setQty(qty);
-        return item;
+        Integer userId = currentUserId();
+        Cart cart = currentCart(userId);
+        if (!cart.setQuantity(id, qty)) {
+            return null;
+        }
+        changed(userId, cart);
+        return toItem(cart, id);
     }
 
     @Override
     public void clear() {
-        map.clear();
+        Integer userId = currentUserId();
+        Cart cart = existingCart(userId);
+        if (cart != null) {
+            cart.clear();
+            changed(userId, cart);
+        }
     }
 
     @Override
     public List<Item> getItems() {
-        List items = new ArrayList<>(map.values());
-        return items;
+        Cart cart = existingCart(currentUserId());
+        if (cart == null) {
+            return new ArrayList<>();
+        }
+        return cart.lines()
+                .stream()
+                .map(this::toItem)
+                .collect(Collectors.toList());
     }
 
+    //Tổng được giữ sẵn trong Cart nên đọc là O(1)
     @Override
     public Integer getCount() {
-        return map.values().stream()
-                .mapToInt(item -> item.getQty())
-                .sum();
+        Cart cart = existingCart(currentUserId());
+        return cart == null ? 0 : cart.count();
+    }
 
+    @Override
+    public BigDecimal getAmount() {
+        Cart cart = existingCart(currentUserId());
+        return Money.fromCents(cart == null ? 0 : cart.amountCents());
     }
 
+    /* Dòng đã có trong giỏ của user được cộng thêm số lượng và giữ giá cũ, dòng mới giữ giá lúc thêm vào giỏ session */
     @Override
-    public Double getAmount() {
-        return map.values().stream()
-                .mapToDouble(item -> item.getPrice() * item.getQty())
-                .sum();
+    public void mergeSessionCart(Integer userId) {
+        HttpSession session = currentSession(false);
+        String sessionCartKey = session == null ? null : (String) session.getAttribute(CART_KEY_ATTRIBUTE);
+        if (sessionCartKey == null) {
+            return;
+        }
+        session.removeAttribute(CART_KEY_ATTRIBUTE);
+        Cart sessionCart = cartStore.find(sessionCartKey);
+        cartStore.remove(sessionCartKey);
+        if (sessionCart == null || sessionCart.isEmpty()) {
+            return;
+        }
+        Cart userCart = userCart(userId);
+        for (CartLine line : sessionCart.lines()) {
+            userCart.add(line.getProductId(), line.getUnitCents(), line.getQty());
+        }
+        changed(userId, userCart);
+    }
+
+    private Cart currentCart(Integer userId) {
+        if (userId != null) {
+            return userCart(userId);
+        }
+        return cartStore.getOrCreate(sessionCartKey());
     }
 
+    //Chỉ đọc: không tạo session hay giỏ mới cho người chưa thêm gì vào giỏ
+    private Cart existingCart(Integer userId) {
+        if (userId != null) {
+            return userCart(userId);
+        }
+        HttpSession session = currentSession(false);
+        String cartKey = session == null ? null : (String) session.getAttribute(CART_KEY_ATTRIBUTE);
+        return cartKey == null ? null : cartStore.find(cartKey);
+    }
 
+    private Cart userCart(int userId) {
+        String cartKey = "u:" + userId;
+        Cart cart = cartStore.find(cartKey);
+        if (cart == null) {
+            cart = cartStore.putIfAbsent(cartKey, cartPersistence.load(userId));
+        }
+        return cart;
+    }
+
+    //Giỏ session chỉ sống trong bộ nhớ, giỏ của user được đưa vào hàng đợi ghi
+    private void changed(Integer userId, Cart cart) {
+        if (userId != null) {
+            cartPersistence.markDirty(userId, cart);
+        }
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return null;
+    }
+
+    private static HttpSession currentSession(boolean create) {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+                .getRequest()
+                .getSession(create);
+    }
+
+    //Key ngẫu nhiên lưu trong session, giữ nguyên khi Spring Security đổi session id lúc đăng nhập
+    private static String sessionCartKey() {
+        HttpSession session = currentSession(true);
+        String cartKey = (String) session.getAttribute(CART_KEY_ATTRIBUTE);
+        if (cartKey == null) {
+            cartKey = "s:" + UUID.randomUUID();
+            session.setAttribute(CART_KEY_ATTRIBUTE, cartKey);
+        }
+        return cartKey;
+    }
+
+    private Item toItem(Cart cart, Integer id) {
+        return cart.lines()
+                .stream()
+                .filter(line -> line.getProductId() == id)
+                .findFirst()
+                .map(this::toItem)
+                .orElse(null);
+    }
+
+    //Tên lấy từ cache snapshot lúc hiển thị, giỏ chỉ giữ id, số lượng và giá
+    private Item toItem(CartLine line) {
+        String name;
+        try {
+            name = this.productService.findSnapshot(line.getProductId()).getName();
+        } catch (ObjectNotFoundException e) {
+            name = null;
+        }
+        return new Item(line.getProductId(), name, Money.fromCents(line.getUnitCents()), line.getQty());
+    }
 }
@@ -2,9 +2,11 @@ package com.project.assignment.services;
 
 import com.project.assignment.models.Category;
 import com.project.assignment.repositories.CategoryRepository;
+import com.project.assignment.services.category.CategoryChangedEvent;
 import com.project.assignment.systems.ObjectNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,10 +15,12 @@ import java.util.List;
 @Transactional
 public class CategoryService {
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Category> findAll() {
@@ -25,7 +29,16 @@ public class CategoryService {
 
 
     public Category save(Category category) {
-        return this.categoryRepository.save(category);
+        CategoryChangedEvent.Action action = category.getId() == null
+                ? CategoryChangedEvent.Action.CREATED
+                : CategoryChangedEvent.Action.UPDATED;
+        //Form admin không gửi version, lấy version hiện tại để merge không bị coi là entity mới
+        if (category.getId() != null && category.getVersion() == null) {
+            this.categoryRepository.findVersionById(category.getId()).ifPresent(category::setVersion);
+        }
+        Category savedCategory = this.categoryRepository.save(category);
+        this.eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId(), action));
+        return savedCategory;
     }
 
     public Category findById(Integer id) {
@@ -38,6 +51,7 @@ public class CategoryService {
                 .map(oldCategory -> {
                     oldCategory.setName(updateCategory.getName());
                     Category updatedCategory = this.categoryRepository.save(oldCategory);
+                    this.eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, CategoryChangedEvent.Action.UPDATED));
                     return updatedCategory;
                 })
                 .orElseThrow(() -> new ObjectNotFoundException("category", categoryId));
@@ -48,5 +62,6 @@ public class CategoryService {
         this.categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ObjectNotFoundException("category", categoryId));
         this.categoryRepository.deleteById(categoryId);
+        this.eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, CategoryChangedEvent.Action.DELETED));
     }
 }
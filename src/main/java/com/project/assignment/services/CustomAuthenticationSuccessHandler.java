@@ -1,18 +1,32 @@
 package com.project.assignment.services;
 
+import com.project.assignment.securities.UserPrincipal;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 
+/* Thay cho defaultSuccessUrl("/", true): vẫn luôn chuyển về trang chủ, đồng thời gộp giỏ của session vào giỏ đã lưu của user */
 @Component
-public class CustomAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
+public class CustomAuthenticationSuccessHandler extends SavedRequestAwareAuthenticationSuccessHandler {
+    private final CartService cartService;
+
+    public CustomAuthenticationSuccessHandler(CartService cartService) {
+        this.cartService = cartService;
+        setDefaultTargetUrl("/");
+        setAlwaysUseDefaultTargetUrl(true);
+    }
+
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws IOException, ServletException {
         request.getSession().setAttribute("user", authentication);
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            cartService.mergeSessionCart(principal.getId());
+        }
+        super.onAuthenticationSuccess(request, response, authentication);
     }
 }
@@ -5,35 +5,100 @@ import com.project.assignment.models.OrderDetail;
 import com.project.assignment.models.Product;
 import com.project.assignment.models.User;
 import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.repositories.UserRepository;
+import com.project.assignment.services.order.OrderRequest;
+import com.project.assignment.services.sales.OrderPlacedEvent;
+import com.project.assignment.systems.ObjectNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
+/* Đặt hàng trong một transaction ngắn: một câu IN lấy toàn bộ product của giỏ,
+   order và các order detail dùng id từ sequence nên được insert thành JDBC batch */
 @Service
 @Transactional
 @RequiredArgsConstructor
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final ProductService productService;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public void createOrder(User user, List<Integer> productIds, List<Integer> quantities) {
+    //Trùng idempotency key với đơn đã có thì ném DataIntegrityViolationException lúc commit
+    public Order createOrder(User user, String idempotencyKey, List<Integer> productIds, List<Integer> quantities) {
+        Map<Integer, Product> productsById = findProducts(productIds);
+        Order order = this.orderRepository.save(buildOrder(user, null, idempotencyKey, productIds, quantities, productsById));
+        this.eventPublisher.publishEvent(OrderPlacedEvent.of(order));
+        return order;
+    }
+
+    /* Group commit cho hàng đợi đặt hàng: cả lô dùng chung một câu IN lấy product
+       và được insert trong cùng một transaction, một đơn lỗi thì cả lô rollback */
+    public List<Order> createOrders(List<OrderRequest> requests) {
+        Map<Integer, Product> productsById = findProducts(requests
+                .stream()
+                .flatMap(request -> request.getProductIds().stream())
+                .toList());
+        List<Order> orders = new ArrayList<>(requests.size());
+        for (OrderRequest request : requests) {
+            User user = this.userRepository.getReferenceById(request.getUserId());
+            orders.add(buildOrder(user, request.getReference(), request.getIdempotencyKey(), request.getProductIds(), request.getQuantities(), productsById));
+        }
+        List<Order> saved = this.orderRepository.saveAll(orders);
+        saved.forEach(order -> this.eventPublisher.publishEvent(OrderPlacedEvent.of(order)));
+        return saved;
+    }
+
+    private Map<Integer, Product> findProducts(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
+        return this.productRepository.findAllById(new HashSet<>(productIds))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private static Order buildOrder(User user, String reference, String idempotencyKey, List<Integer> productIds, List<Integer> quantities,
+                                    Map<Integer, Product> productsById) {
+        if (productIds.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
         Order order = new Order();
         order.setOrderDate(new Date());
         order.setUser(user);
-        order.setOrderDetails(new ArrayList<>());
+        order.setReference(reference);
+        order.setIdempotencyKey(idempotencyKey);
+        order.setOrderDetails(new ArrayList<>(productIds.size()));
 
         float totalMoney = 0;
 
         for (int i = 0; i < productIds.size(); i++) {
-            Product product = this.productService.findById(productIds.get(i));
+            //Giá lấy từ product vừa đọc trong transaction, không tin giá lưu trong giỏ
+            Product product = productsById.get(productIds.get(i));
+            if (product == null) {
+                throw new ObjectNotFoundException("product", productIds.get(i));
+            }
             Integer qty = quantities.get(i);
-            float price = product.getPrice();
+            if (qty == null || qty <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for product " + product.getId());
+            }
+            Float price = product.getPrice();
+            if (price == null || price < 0) {
+                throw new IllegalStateException("Product " + product.getId() + " has no valid price");
+            }
 
             OrderDetail orderDetail = new OrderDetail();
             orderDetail.setProduct(product);
@@ -45,6 +110,6 @@ public class OrderService {
             totalMoney += qty * price;
         }
         order.setTotalMoney(totalMoney);
-        this.orderRepository.save(order);
+        return order;
     }
 }
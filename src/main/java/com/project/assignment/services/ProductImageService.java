@@ -2,7 +2,12 @@ package com.project.assignment.services;
 
 import com.project.assignment.models.ProductImage;
 import com.project.assignment.repositories.ProductImageRepository;
+import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.services.product.ProductChangedEvent;
+import com.project.assignment.services.product_image.ProductImageRemovedEvent;
+import com.project.assignment.services.product_image.ProductImageStoredEvent;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -12,9 +17,15 @@ import java.util.List;
 public class ProductImageService {
 
     private final ProductImageRepository productImageRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductImageService(ProductImageRepository productImageRepository) {
+    public ProductImageService(ProductImageRepository productImageRepository,
+                               ProductRepository productRepository,
+                               ApplicationEventPublisher eventPublisher) {
         this.productImageRepository = productImageRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<ProductImage> findAll() {
@@ -22,7 +33,19 @@ public class ProductImageService {
     }
 
     public ProductImage save(ProductImage productImage) {
-        return this.productImageRepository.save(productImage);
+        //Ảnh được gửi lên từ form (đã detach), url cũ phải đọc lại từ database
+        String previousUrl = productImage.getId() == null ? null : this.productImageRepository.findUrlById(productImage.getId()).orElse(null);
+        ProductImage savedImage = this.productImageRepository.save(productImage);
+        Integer productId = savedImage.getProduct().getId();
+        this.productRepository.incrementVersion(productId);
+        this.eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.UPDATED));
+        if (savedImage.getVariantWidths() == null) {
+            this.eventPublisher.publishEvent(new ProductImageStoredEvent(savedImage.getId(), productId, savedImage.getUrl()));
+        }
+        if (previousUrl != null && !previousUrl.equals(savedImage.getUrl())) {
+            this.eventPublisher.publishEvent(new ProductImageRemovedEvent(List.of(previousUrl)));
+        }
+        return savedImage;
     }
 
     public ProductImage findByProductId(Integer categoryId) {
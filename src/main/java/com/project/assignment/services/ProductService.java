@@ -2,37 +2,86 @@ package com.project.assignment.services;
 
 import com.project.assignment.models.Category;
 import com.project.assignment.models.Product;
+import com.project.assignment.models.ProductImage;
 import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.services.product.ProductCache;
+import com.project.assignment.services.product.ProductChangedEvent;
+import com.project.assignment.services.product.ProductCursor;
+import com.project.assignment.services.product.ProductSnapshot;
+import com.project.assignment.services.product.ProductWindow;
+import com.project.assignment.services.product_image.ProductImageRemovedEvent;
 import com.project.assignment.systems.ObjectNotFoundException;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductService {
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductCache productCache;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher, ProductCache productCache) {
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.productCache = productCache;
     }
 
     public List<Product> findAll() {
         return this.productRepository.findAll();
     }
 
+    //Load theo khoá chính và giữ đúng thứ tự id truyền vào (thứ tự đã sort từ index)
+    public List<Product> findAllByIdInOrder(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Product> productsById = this.productRepository.findAllById(productIds)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        return productIds
+                .stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     public Product findById(Integer productId) {
         return this.productRepository.findById(productId)
                 .orElseThrow(() -> new ObjectNotFoundException("product", productId));
     }
 
+    //Đọc qua cache, dùng cho các trang chỉ hiển thị. Cần entity để sửa thì dùng findById
+    public ProductSnapshot findSnapshot(Integer productId) {
+        return this.productCache.get(productId, () -> this.productRepository.findWithImagesById(productId).map(ProductSnapshot::of))
+                .orElseThrow(() -> new ObjectNotFoundException("product", productId));
+    }
+
     public Product save(Product newProduct) {
-        return this.productRepository.save(newProduct);
+        ProductChangedEvent.Action action = newProduct.getId() == null
+                ? ProductChangedEvent.Action.CREATED
+                : ProductChangedEvent.Action.UPDATED;
+        //Form admin không gửi version, lấy version hiện tại để merge không bị coi là entity mới
+        if (newProduct.getId() != null && newProduct.getVersion() == null) {
+            this.productRepository.findVersionById(newProduct.getId()).ifPresent(newProduct::setVersion);
+        }
+        Product savedProduct = this.productRepository.save(newProduct);
+        this.eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), action));
+        return savedProduct;
     }
 
     public Product update(Integer productId, Product updateProduct) {
@@ -42,7 +91,9 @@ public class ProductService {
                     oldProduct.setDescription(updateProduct.getDescription());
                     oldProduct.setPrice(updateProduct.getPrice());
                     oldProduct.setUpdateDate(LocalDate.now());
-                    return this.productRepository.save(oldProduct);
+                    Product savedProduct = this.productRepository.save(oldProduct);
+                    this.eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.UPDATED));
+                    return savedProduct;
                 })
                 .orElseThrow(() -> new ObjectNotFoundException("product", productId));
     }
@@ -50,8 +101,15 @@ public class ProductService {
     public void delete(Integer productId) {
         Product deleteProduct = this.productRepository.findById(productId)
                 .orElseThrow(() -> new ObjectNotFoundException("product", productId));
-        deleteProduct.removeAllImage();
-        this.productRepository.deleteById(productId);
+        List<String> imageUrls = deleteProduct.getProductImages()
+                .stream()
+                .map(ProductImage::getUrl)
+                .filter(Objects::nonNull)
+                .toList();
+        //Ảnh được xoá theo cascade, gỡ product khỏi ảnh trước sẽ vi phạm product_id NOT NULL
+        this.productRepository.delete(deleteProduct);
+        this.eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.DELETED));
+        this.eventPublisher.publishEvent(new ProductImageRemovedEvent(imageUrls));
     }
 
     public Page<Product> getAllProducts(Pageable pageable) {
@@ -61,4 +119,23 @@ public class ProductService {
     public Page<Product> findProductsByCategory(Category category, Pageable pageable) {
         return productRepository.findByCategory(category, pageable);
     }
+
+    /* Phân trang keyset cho shop và REST, categoryId null nghĩa là không lọc */
+    public ProductWindow scrollProducts(Integer categoryId, String sort, String cursor, int limit) {
+        ProductCursor productCursor = ProductCursor.decode(cursor, sort);
+        KeysetScrollPosition position = productCursor.getPosition();
+        Window<Product> window = categoryId == null
+                ? productRepository.findAllBy(position, productCursor.toSort(), Limit.of(limit))
+                : productRepository.findAllByCategoryId(categoryId, position, productCursor.toSort(), Limit.of(limit));
+        if (window.isEmpty()) {
+            return new ProductWindow(window.getContent(), null, null);
+        }
+
+        boolean hasMoreForward = position.scrollsForward() ? window.hasNext() : true;
+        boolean hasMoreBackward = position.scrollsBackward() ? window.hasNext() : !position.isInitial();
+        String sortKey = productCursor.getSort();
+        String nextCursor = hasMoreForward ? ProductCursor.encode(sortKey, window.positionAt(window.size() - 1), true) : null;
+        String prevCursor = hasMoreBackward ? ProductCursor.encode(sortKey, window.positionAt(0), false) : null;
+        return new ProductWindow(window.getContent(), nextCursor, prevCursor);
+    }
 }
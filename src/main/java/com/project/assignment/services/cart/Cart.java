@@ -0,0 +1,133 @@
+package com.project.assignment.services.cart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* Giỏ hàng gọn trong bộ nhớ: mỗi dòng là product id, số lượng và giá (cent) lúc thêm vào, lưu trong các mảng nguyên thuỷ.
+   Tổng số lượng và tổng tiền được cập nhật ở mỗi thao tác thay vì tính lại khi đọc.
+   Các request song song của cùng một trình duyệt được tuần tự hoá bằng lock trên chính giỏ */
+public class Cart {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] productIds = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] unitCents = new long[INITIAL_CAPACITY];
+    private int size;
+    private int count;
+    private long amountCents;
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    public synchronized boolean contains(int productId) {
+        return indexOf(productId) >= 0;
+    }
+
+    //Thêm qty vào dòng đã có hoặc tạo dòng mới với giá truyền vào, trả về số lượng mới của dòng
+    public synchronized int add(int productId, long priceCents, int qty) {
+        int index = indexOf(productId);
+        if (index >= 0) {
+            changeQuantity(index, quantities[index] + qty);
+            return quantities[index];
+        }
+        ensureCapacity(size + 1);
+        productIds[size] = productId;
+        quantities[size] = 0;
+        unitCents[size] = priceCents;
+        size++;
+        changeQuantity(size - 1, qty);
+        return qty;
+    }
+
+    //Tăng số lượng của dòng đã có, trả về false nếu product chưa có trong giỏ
+    public synchronized boolean increment(int productId, int delta) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        changeQuantity(index, quantities[index] + delta);
+        return true;
+    }
+
+    public synchronized boolean setQuantity(int productId, int qty) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        changeQuantity(index, qty);
+        return true;
+    }
+
+    public synchronized void remove(int productId) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return;
+        }
+        changeQuantity(index, 0);
+        int moved = size - index - 1;
+        System.arraycopy(productIds, index + 1, productIds, index, moved);
+        System.arraycopy(quantities, index + 1, quantities, index, moved);
+        System.arraycopy(unitCents, index + 1, unitCents, index, moved);
+        size--;
+    }
+
+    public synchronized void clear() {
+        size = 0;
+        count = 0;
+        amountCents = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized List<CartLine> lines() {
+        List<CartLine> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(new CartLine(productIds[i], quantities[i], unitCents[i]));
+        }
+        return lines;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized long amountCents() {
+        return amountCents;
+    }
+
+    //Mọi thay đổi số lượng đi qua đây để tổng luôn khớp với các dòng
+    private void changeQuantity(int index, int qty) {
+        int delta = qty - quantities[index];
+        quantities[index] = qty;
+        count += delta;
+        amountCents += delta * unitCents[index];
+    }
+
+    private int indexOf(int productId) {
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, productIds.length * 2);
+        productIds = Arrays.copyOf(productIds, newLength);
+        quantities = Arrays.copyOf(quantities, newLength);
+        unitCents = Arrays.copyOf(unitCents, newLength);
+    }
+}
@@ -0,0 +1,14 @@
+package com.project.assignment.services.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Một dòng của giỏ hàng tại thời điểm đọc
+@Getter
+@AllArgsConstructor
+public final class CartLine {
+    private final int productId;
+    private final int qty;
+    //Giá tại lúc thêm vào giỏ, tính bằng cent
+    private final long unitCents;
+}
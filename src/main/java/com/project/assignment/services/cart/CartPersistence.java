@@ -0,0 +1,132 @@
+package com.project.assignment.services.cart;
+
+import com.project.assignment.models.CartItem;
+import com.project.assignment.repositories.CartItemRepository;
+import com.project.assignment.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Lưu giỏ của user đã đăng nhập theo kiểu write-behind: request chỉ đánh dấu giỏ là dirty,
+   job định kỳ ghi lại toàn bộ dòng của mỗi giỏ dirty trong một transaction.
+   Nhiều thao tác liên tiếp trên cùng giỏ giữa hai lần flush chỉ thành một lần ghi.
+   Dòng của product đã bị xoá (cart_items bị xoá theo cascade) được bỏ khỏi giỏ thay vì ghi lại */
+@Component
+public class CartPersistence {
+    private static final Logger logger = LoggerFactory.getLogger(CartPersistence.class);
+
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    //userId -> giỏ cần ghi, đánh dấu lại nhiều lần vẫn chỉ là một entry
+    private final Map<Integer, Cart> dirtyCarts = new ConcurrentHashMap<>();
+
+    public CartPersistence(CartItemRepository cartItemRepository,
+                           ProductRepository productRepository,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager) {
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //Đọc giỏ đã lưu, chỉ chạy lần đầu giỏ của user được dùng sau khi khởi động hoặc bị xoá khỏi bộ nhớ
+    public Cart load(int userId) {
+        Cart cart = new Cart();
+        for (CartItem item : cartItemRepository.findByUserId(userId)) {
+            cart.add(item.getProductId(), item.getUnitCents(), item.getQty());
+        }
+        return cart;
+    }
+
+    public void markDirty(int userId, Cart cart) {
+        dirtyCarts.put(userId, cart);
+    }
+
+    /* Entry được lấy ra trước khi đọc các dòng: thay đổi xảy ra sau đó sẽ đánh dấu lại giỏ
+       và được ghi ở lần flush sau, nên không mất thay đổi nào */
+    @Scheduled(fixedDelayString = "${cart.flush-interval-ms:2000}")
+    public void flush() {
+        if (dirtyCarts.isEmpty()) {
+            return;
+        }
+        int written = 0;
+        for (Integer userId : new ArrayList<>(dirtyCarts.keySet())) {
+            Cart cart = dirtyCarts.remove(userId);
+            if (cart == null) {
+                continue;
+            }
+            try {
+                write(userId, cart);
+                written++;
+            } catch (DataIntegrityViolationException e) {
+                //Product bị xoá ngay sau lúc kiểm tra thì lần đánh dấu sau sẽ bỏ dòng đó, user bị xoá thì không còn gì để ghi.
+                //Thử lại cùng dữ liệu chỉ lỗi mãi nên không đưa vào hàng đợi nữa
+                logger.warn("Dropped cart of user {} that no longer matches the database", userId, e);
+            } catch (RuntimeException e) {
+                //Giữ lại để thử lại ở lần flush sau, trừ khi đã có bản mới hơn được đánh dấu
+                dirtyCarts.putIfAbsent(userId, cart);
+                logger.warn("Could not persist cart of user {}", userId, e);
+            }
+        }
+        logger.debug("Persisted {} carts", written);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(int userId, Cart cart) {
+        List<CartLine> lines = withoutDeletedProducts(cart);
+        transactionTemplate.executeWithoutResult(status -> {
+            cartItemRepository.deleteAllByUserId(userId);
+            LocalDateTime now = LocalDateTime.now();
+            for (CartLine line : lines) {
+                entityManager.persist(CartItem
+                        .builder()
+                        .userId(userId)
+                        .productId(line.getProductId())
+                        .qty(line.getQty())
+                        .unitCents(line.getUnitCents())
+                        .updatedAt(now)
+                        .build());
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private List<CartLine> withoutDeletedProducts(Cart cart) {
+        List<CartLine> lines = cart.lines();
+        if (lines.isEmpty()) {
+            return lines;
+        }
+        Set<Integer> existing = new HashSet<>(productRepository.findExistingIds(lines.stream().map(CartLine::getProductId).toList()));
+        List<CartLine> kept = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            if (existing.contains(line.getProductId())) {
+                kept.add(line);
+            } else {
+                cart.remove(line.getProductId());
+            }
+        }
+        return kept;
+    }
+}
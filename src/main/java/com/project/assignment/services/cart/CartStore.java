@@ -0,0 +1,19 @@
+package com.project.assignment.services.cart;
+
+import java.time.Duration;
+
+/* Nơi lưu giỏ hàng theo cart key (key của session hoặc id của user), tách khỏi HTTP session */
+public interface CartStore {
+    //Trả về null nếu chưa có giỏ với key này
+    Cart find(String cartKey);
+
+    Cart getOrCreate(String cartKey);
+
+    //Đặt giỏ đã load từ nơi khác vào store, nếu key đã có giỏ thì giữ giỏ cũ và trả về giỏ đó
+    Cart putIfAbsent(String cartKey, Cart cart);
+
+    void remove(String cartKey);
+
+    //Xoá các giỏ không được dùng trong khoảng idleTimeout, trả về số giỏ đã xoá
+    int evictIdle(Duration idleTimeout);
+}
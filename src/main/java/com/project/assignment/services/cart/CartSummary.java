@@ -0,0 +1,41 @@
+package com.project.assignment.services.cart;
+
+import com.project.assignment.models.Item;
+import com.project.assignment.services.CartService;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/* Bản chỉ đọc của giỏ hàng đưa vào model cho template. Mỗi giá trị chỉ được đọc từ CartService
+   khi template thực sự dùng tới, và chỉ đọc một lần trong một request */
+public class CartSummary {
+    private final CartService cartService;
+    private Integer count;
+    private BigDecimal amount;
+    private List<Item> items;
+
+    public CartSummary(CartService cartService) {
+        this.cartService = cartService;
+    }
+
+    public Integer getCount() {
+        if (count == null) {
+            count = cartService.getCount();
+        }
+        return count;
+    }
+
+    public BigDecimal getAmount() {
+        if (amount == null) {
+            amount = cartService.getAmount();
+        }
+        return amount;
+    }
+
+    public List<Item> getItems() {
+        if (items == null) {
+            items = List.copyOf(cartService.getItems());
+        }
+        return items;
+    }
+}
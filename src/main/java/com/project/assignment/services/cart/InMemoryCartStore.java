@@ -0,0 +1,68 @@
+package com.project.assignment.services.cart;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class InMemoryCartStore implements CartStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+    private final Duration idleTimeout;
+
+    public InMemoryCartStore(@Value("${cart.idle-timeout:2h}") Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public Cart find(String cartKey) {
+        Cart cart = carts.get(cartKey);
+        if (cart != null) {
+            cart.touch();
+        }
+        return cart;
+    }
+
+    @Override
+    public Cart getOrCreate(String cartKey) {
+        Cart cart = carts.computeIfAbsent(cartKey, key -> new Cart());
+        cart.touch();
+        return cart;
+    }
+
+    @Override
+    public Cart putIfAbsent(String cartKey, Cart cart) {
+        Cart existing = carts.putIfAbsent(cartKey, cart);
+        Cart result = existing != null ? existing : cart;
+        result.touch();
+        return result;
+    }
+
+    @Override
+    public void remove(String cartKey) {
+        carts.remove(cartKey);
+    }
+
+    @Override
+    public int evictIdle(Duration idleTimeout) {
+        long deadline = System.currentTimeMillis() - idleTimeout.toMillis();
+        int before = carts.size();
+        carts.values().removeIf(cart -> cart.getLastAccess() < deadline);
+        return before - carts.size();
+    }
+
+    @Scheduled(fixedDelayString = "${cart.eviction-interval-ms:300000}")
+    public void evictIdleCarts() {
+        int evicted = evictIdle(idleTimeout);
+        if (evicted > 0) {
+            logger.info("Evicted {} idle carts", evicted);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.assignment.services.category;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.assignment.repositories.CategoryRepository;
+import com.project.assignment.responses.CategoryResponse;
+import com.project.assignment.utilities.ETags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Snapshot bất biến của toàn bộ category dùng chung cho trang shop, form admin và REST.
+   Được build lại và thay thế nguyên khối sau mỗi lần ghi category */
+@Component
+public class CategoryCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(CategoryCatalog.class);
+
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    private volatile CategorySnapshot snapshot;
+
+    public CategoryCatalog(CategoryRepository categoryRepository, ObjectMapper objectMapper) {
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    //Build lần đầu khi cần nếu lúc khởi động chưa build được
+    public CategorySnapshot snapshot() {
+        CategorySnapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+
+    public List<CategoryView> getCategories() {
+        return snapshot().getCategories();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        try {
+            CategorySnapshot built = rebuild();
+            logger.info("Category snapshot built with {} categories", built.getCategories().size());
+        } catch (RuntimeException e) {
+            logger.error("Could not build category snapshot", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    //synchronized để lần build chạy sau luôn đọc dữ liệu mới hơn và là lần được giữ lại
+    public synchronized CategorySnapshot rebuild() {
+        List<CategoryRepository.NameRow> rows = categoryRepository.findAllNames();
+        List<CategoryView> categories = rows
+                .stream()
+                .map(row -> new CategoryView(row.getId(), row.getName()))
+                .toList();
+        List<CategoryResponse> responses = categories
+                .stream()
+                .map(CategoryCatalog::toResponse)
+                .toList();
+        Map<Integer, String> namesById = new LinkedHashMap<>();
+        rows.forEach(row -> namesById.put(row.getId(), row.getName()));
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(responses);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize categories", e);
+        }
+        CategorySnapshot built = new CategorySnapshot(
+                categories,
+                Collections.unmodifiableMap(namesById),
+                json,
+                ETags.strong("categories", DigestUtils.md5DigestAsHex(json))
+        );
+        snapshot = built;
+        return built;
+    }
+
+    public static CategoryResponse toResponse(CategoryView category) {
+        return CategoryResponse
+                .builder()
+                .categoryId(category.getId())
+                .categoryName(category.getName())
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.assignment.services.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* Được publish sau mỗi lần ghi category để các cache trong bộ nhớ tự cập nhật */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+    public enum Action {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Integer categoryId;
+    private final Action action;
+}
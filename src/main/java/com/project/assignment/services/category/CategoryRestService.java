@@ -6,6 +6,7 @@ import com.project.assignment.repositories.CategoryRepository;
 import com.project.assignment.responses.CategoryResponse;
 import com.project.assignment.systems.NotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -15,6 +16,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryRestService implements ICategoryService {
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryCatalog categoryCatalog;
 
     @Override
     public CategoryResponse createCategory(CategoryDTO categoryDTO) {
@@ -22,13 +25,17 @@ public class CategoryRestService implements ICategoryService {
                 .builder()
                 .name(categoryDTO.getName())
                 .build();
-        return CategoryResponse.of(categoryRepository.save(category));
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId(), CategoryChangedEvent.Action.CREATED));
+        return CategoryResponse.of(savedCategory);
     }
 
     @Override
     public List<CategoryResponse> getAllCategories() {
-        List<Category> categories = categoryRepository.findAll();
-        return categories.stream().map(CategoryResponse::of).toList();
+        return categoryCatalog.getCategories()
+                .stream()
+                .map(CategoryCatalog::toResponse)
+                .toList();
     }
 
     @Override
@@ -42,13 +49,15 @@ public class CategoryRestService implements ICategoryService {
         Category category = categoryRepository.findById(id).orElseThrow(() -> new NotFoundException("Category not found"));
 
         category.setName(categoryDTO.getName());
-        categoryRepository.save(category);
-        return CategoryResponse.of(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, CategoryChangedEvent.Action.UPDATED));
+        return CategoryResponse.of(savedCategory);
     }
 
     @Override
     public void deleteCategory(int id) throws NotFoundException {
         Category category = categoryRepository.findById(id).orElseThrow(() -> new NotFoundException("Category not found"));
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, CategoryChangedEvent.Action.DELETED));
     }
 }
@@ -0,0 +1,22 @@
+package com.project.assignment.services.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/* Toàn bộ category tại một thời điểm: danh sách cho template, id -> tên,
+   và response JSON của /api/v1/categories đã serialize sẵn kèm ETag theo nội dung */
+@Getter
+@AllArgsConstructor
+public final class CategorySnapshot {
+    private final List<CategoryView> categories;
+    private final Map<Integer, String> namesById;
+    private final byte[] json;
+    private final String etag;
+
+    public String nameOf(Integer categoryId) {
+        return namesById.get(categoryId);
+    }
+}
@@ -0,0 +1,12 @@
+package com.project.assignment.services.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Category chỉ gồm id và tên, bất biến để dùng chung giữa các request
+@Getter
+@AllArgsConstructor
+public final class CategoryView {
+    private final Integer id;
+    private final String name;
+}
@@ -0,0 +1,206 @@
+package com.project.assignment.services.inventory;
+
+import com.project.assignment.models.ProductStock;
+import com.project.assignment.repositories.OrderDetailRepository;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.repositories.ProductStockRepository;
+import com.project.assignment.systems.OrderRejectedException;
+import com.project.assignment.systems.OutOfStockException;
+import com.project.assignment.utilities.CoalescingRebuild;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Tồn kho khả dụng được giữ trong bộ nhớ, mỗi product một StockCounter, checkout giữ hàng bằng CAS thay vì UPDATE từng đơn.
+   Database chỉ được cập nhật bởi job flush: gom các đơn đã commit chưa trừ tồn kho (stock_applied = 0),
+   mỗi product một câu UPDATE cho cả lô rồi đánh dấu các đơn đó. Sau khi khởi động lại,
+   số khả dụng = product_stock.quantity - số lượng của các đơn chưa trừ.
+   Product không có dòng trong product_stock thì không giới hạn số lượng.
+   Trước khi đọc được tồn kho (đang khởi động hoặc database lỗi) thì không nhận giữ hàng, việc đọc lại chạy trên thread riêng
+   với backoff, không chiếm thread scheduler dùng chung với các job flush khác */
+@Service
+public class InventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final ProductStockRepository productStockRepository;
+    private final OrderRepository orderRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes = Runtime.getRuntime().availableProcessors();
+    private final Map<Integer, StockCounter> counters = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    private final CoalescingRebuild reload = new CoalescingRebuild("inventory-reload", this::load);
+
+    public InventoryService(ProductStockRepository productStockRepository,
+                            OrderRepository orderRepository,
+                            OrderDetailRepository orderDetailRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.productStockRepository = productStockRepository;
+        this.orderRepository = orderRepository;
+        this.orderDetailRepository = orderDetailRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //Chạy trước OrderIntake để các đơn replay từ journal trừ vào số đã đối soát, không đọc được thì đọc lại ở nền
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (!load()) {
+            reload.request();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        reload.stop();
+    }
+
+    public synchronized boolean load() {
+        if (ready) {
+            return true;
+        }
+        try {
+            Map<Integer, Long> pending = pendingQuantities();
+            Map<Integer, StockCounter> loaded = new HashMap<>();
+            for (ProductStock stock : productStockRepository.findAll()) {
+                long available = stock.getQuantity() - pending.getOrDefault(stock.getProductId(), 0L);
+                loaded.put(stock.getProductId(), new StockCounter((int) available, stripes));
+            }
+            counters.putAll(loaded);
+            ready = true;
+            logger.info("Inventory loaded for {} products", counters.size());
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Could not load inventory", e);
+            return false;
+        }
+    }
+
+    //null nếu product không được theo dõi tồn kho
+    public Integer getAvailable(Integer productId) {
+        StockCounter counter = counters.get(productId);
+        return counter == null ? null : counter.available();
+    }
+
+    /* Giữ hàng cho cả giỏ, thiếu một product thì trả lại những gì đã giữ và báo hết hàng.
+       Chưa đọc được tồn kho thì từ chối đơn, không để product nào thành không giới hạn */
+    public void reserve(List<Integer> productIds, List<Integer> quantities) {
+        if (!ready) {
+            throw new OrderRejectedException("Inventory is not loaded yet");
+        }
+        for (int i = 0; i < productIds.size(); i++) {
+            StockCounter counter = counters.get(productIds.get(i));
+            if (counter != null && !counter.tryTake(quantities.get(i))) {
+                release(productIds.subList(0, i), quantities.subList(0, i));
+                throw new OutOfStockException(productIds.get(i));
+            }
+        }
+    }
+
+    //Giữ hàng không kiểm tra, cho đơn đã hứa với khách từ trước (replay journal)
+    public void forceReserve(List<Integer> productIds, List<Integer> quantities) {
+        for (int i = 0; i < productIds.size(); i++) {
+            StockCounter counter = counters.get(productIds.get(i));
+            if (counter != null) {
+                counter.take(quantities.get(i));
+            }
+        }
+    }
+
+    //Trả lại hàng đã giữ khi đơn không được tạo
+    public void release(List<Integer> productIds, List<Integer> quantities) {
+        for (int i = 0; i < productIds.size(); i++) {
+            StockCounter counter = counters.get(productIds.get(i));
+            if (counter != null) {
+                counter.add(quantities.get(i));
+            }
+        }
+    }
+
+    /* Nhập thêm (delta > 0) hoặc bớt hàng, ghi database ngay vì đây là thao tác của admin, không nằm trên đường checkout.
+       Product chưa được theo dõi thì counter bắt đầu như lúc load: số trong database trừ các đơn đã commit chưa trừ tồn kho,
+       và không được bắt đầu bằng số âm. Khoá cùng load và flush để số vừa ghi không bị cộng hai lần hay bị bỏ sót */
+    public synchronized Integer adjustStock(Integer productId, int delta) {
+        Integer quantity = transactionTemplate.execute(status -> {
+            if (productStockRepository.addQuantity(productId, delta) == 0) {
+                if (delta < 0) {
+                    throw new IllegalArgumentException("Stock of product " + productId + " cannot start below 0");
+                }
+                productStockRepository.save(ProductStock.builder().productId(productId).quantity(delta).build());
+            }
+            return productStockRepository.findById(productId).map(ProductStock::getQuantity).orElse(delta);
+        });
+        if (!ready) {
+            //Số vừa ghi đã nằm trong database, load lại là đủ
+            load();
+            return getAvailable(productId);
+        }
+        StockCounter counter = counters.get(productId);
+        if (counter == null) {
+            long available = quantity - pendingQuantities().getOrDefault(productId, 0L);
+            counter = new StockCounter((int) available, stripes);
+            counters.put(productId, counter);
+        } else {
+            counter.add(delta);
+        }
+        return counter.available();
+    }
+
+    //Số lượng của các đơn đã commit nhưng chưa trừ vào product_stock, theo product
+    private Map<Integer, Long> pendingQuantities() {
+        Map<Integer, Long> pending = new HashMap<>();
+        for (OrderDetailRepository.ProductQuantity row : orderDetailRepository.sumPendingQuantityByProduct()) {
+            pending.put(row.getProductId(), row.getQuantity());
+        }
+        return pending;
+    }
+
+    /* Chưa load được tồn kho thì không flush, các đơn vẫn stock_applied = 0 và được tính khi load.
+       Kiểm tra trước khi khoá để thread scheduler không phải chờ lần load đang treo vì database */
+    @Scheduled(fixedDelayString = "${inventory.flush-interval-ms:1000}")
+    public void flush() {
+        if (!ready) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                Integer applied;
+                do {
+                    applied = transactionTemplate.execute(status -> applyPendingOrders());
+                } while (applied != null && applied == FLUSH_BATCH_SIZE);
+            } catch (RuntimeException e) {
+                //Các đơn vẫn có stock_applied = 0, lần flush sau sẽ làm lại
+                logger.warn("Could not flush inventory", e);
+            }
+        }
+    }
+
+    private int applyPendingOrders() {
+        List<Integer> orderIds = orderRepository.findStockPendingIds(PageRequest.of(0, FLUSH_BATCH_SIZE));
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        for (OrderDetailRepository.ProductQuantity row : orderDetailRepository.sumQuantityByProduct(orderIds)) {
+            if (counters.containsKey(row.getProductId())) {
+                productStockRepository.addQuantity(row.getProductId(), -row.getQuantity().intValue());
+            }
+        }
+        orderRepository.markStockApplied(orderIds);
+        return orderIds.size();
+    }
+}
@@ -0,0 +1,121 @@
+package com.project.assignment.services.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/* Số lượng khả dụng của một product chia đều vào nhiều stripe, mỗi stripe nằm trên một cache line riêng.
+   Mỗi lần lấy hàng bắt đầu từ một stripe ngẫu nhiên và chỉ CAS trên stripe đó, nên nhiều thread cùng mua
+   một sản phẩm hot không tranh nhau một biến hay một row lock. Không bao giờ bán quá số lượng đang có */
+final class StockCounter {
+    //16 int = 64 byte, tránh false sharing giữa các stripe
+    private static final int PADDING = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+
+    StockCounter(int quantity, int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+        add(quantity);
+    }
+
+    int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    /* Thử lấy đủ qty từ một stripe trước, không stripe nào đủ thì gom từ nhiều stripe.
+       Gom không đủ thì trả lại phần đã lấy, nên khi gần hết hàng có thể báo hết dù các request khác vừa trả lại */
+    boolean tryTake(int qty) {
+        if (qty <= 0) {
+            return true;
+        }
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (takeExactly(cell(start + i), qty)) {
+                return true;
+            }
+        }
+        if (available() < qty) {
+            return false;
+        }
+        int[] taken = new int[stripes];
+        int remaining = qty;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int stripe = (start + i) % stripes;
+            taken[stripe] = takeUpTo(stripe * PADDING, remaining);
+            remaining -= taken[stripe];
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (taken[stripe] > 0) {
+                cells.addAndGet(stripe * PADDING, taken[stripe]);
+            }
+        }
+        return false;
+    }
+
+    //Chia đều vào các stripe, phần dư vào các stripe đầu
+    void add(int qty) {
+        if (qty < 0) {
+            take(-qty);
+            return;
+        }
+        int share = qty / stripes;
+        int extra = qty % stripes;
+        for (int i = 0; i < stripes; i++) {
+            int amount = share + (i < extra ? 1 : 0);
+            if (amount > 0) {
+                cells.addAndGet(i * PADDING, amount);
+            }
+        }
+    }
+
+    //Lấy bắt buộc (đơn đã nhận từ trước), thiếu thì stripe đầu bị âm và số khả dụng nhỏ hơn 0 cho tới khi nhập thêm
+    void take(int qty) {
+        if (tryTake(qty)) {
+            return;
+        }
+        int remaining = qty;
+        for (int stripe = 0; stripe < stripes && remaining > 0; stripe++) {
+            remaining -= takeUpTo(stripe * PADDING, remaining);
+        }
+        if (remaining > 0) {
+            cells.addAndGet(0, -remaining);
+        }
+    }
+
+    private int cell(int stripe) {
+        return (stripe % stripes) * PADDING;
+    }
+
+    private boolean takeExactly(int index, int qty) {
+        while (true) {
+            int current = cells.get(index);
+            if (current < qty) {
+                return false;
+            }
+            if (cells.compareAndSet(index, current, current - qty)) {
+                return true;
+            }
+        }
+    }
+
+    private int takeUpTo(int index, int max) {
+        while (true) {
+            int current = cells.get(index);
+            if (current <= 0) {
+                return 0;
+            }
+            int amount = Math.min(current, max);
+            if (cells.compareAndSet(index, current, current - amount)) {
+                return amount;
+            }
+        }
+    }
+}
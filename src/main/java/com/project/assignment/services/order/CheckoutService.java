@@ -0,0 +1,184 @@
+package com.project.assignment.services.order;
+
+import com.project.assignment.models.Item;
+import com.project.assignment.models.User;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.responses.OrderStatusResponse;
+import com.project.assignment.services.CartService;
+import com.project.assignment.services.OrderService;
+import com.project.assignment.services.inventory.InventoryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/* Đặt hàng cho giỏ hiện tại, dùng chung cho form checkout và REST.
+   Bấm đúp hoặc trình duyệt gửi lại với cùng idempotency key thì nhận lại kết quả của lần đầu từ cache trong bộ nhớ,
+   không chạm database; lần gửi lại đến khi lần đầu còn đang chạy thì chờ lần đầu xong.
+   Key chỉ có nghĩa trong phạm vi một người mua (user đã đăng nhập hoặc session của khách), người khác gửi cùng key
+   vẫn được đặt đơn của mình. Key đã bị đẩy khỏi cache (đầy hoặc khởi động lại) thì unique index trên
+   orders (user_id, idempotency_key) chặn đơn trùng của user đã đăng nhập */
+@Service
+public class CheckoutService {
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final CartService cartService;
+    private final OrderService orderService;
+    private final OrderIntake orderIntake;
+    private final InventoryService inventoryService;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    //Kết quả theo <người mua>:<key>, lần đầu lỗi thì key bị xoá để gửi lại được
+    private final Map<String, CompletableFuture<OrderStatusResponse>> results;
+
+    public CheckoutService(CartService cartService,
+                           OrderService orderService,
+                           OrderIntake orderIntake,
+                           InventoryService inventoryService,
+                           OrderRepository orderRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${order.idempotency.cache-size:10000}") int cacheSize) {
+        this.cartService = cartService;
+        this.orderService = orderService;
+        this.orderIntake = orderIntake;
+        this.inventoryService = inventoryService;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int maxEntries = Math.max(1, cacheSize);
+        this.results = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<OrderStatusResponse>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    //Đặt hàng cho user đã đăng nhập
+    public OrderStatusResponse checkout(Integer userId, String idempotencyKey, Supplier<User> buyer) {
+        return checkout("user:" + userId, userId, idempotencyKey, buyer);
+    }
+
+    /* Đặt hàng cho khách, key chỉ chống gửi trùng trong cùng session. Mỗi đơn của khách là một tài khoản mới
+       nên không có bản ghi nào trong database để tra lại khi cache không còn key */
+    public OrderStatusResponse checkoutAsGuest(String sessionId, String idempotencyKey, Supplier<User> buyer) {
+        return checkout("guest:" + sessionId, null, idempotencyKey, buyer);
+    }
+
+    /* buyer chỉ được gọi sau khi giỏ đã được kiểm tra và hàng đã được giữ, nên gửi lại hoặc hết hàng không tạo thêm
+       tài khoản khách. Đơn tạo ngay trả về COMPLETED kèm orderId, đơn vào hàng đợi trả về QUEUED kèm reference */
+    private OrderStatusResponse checkout(String scope, Integer userId, String idempotencyKey, Supplier<User> buyer) {
+        String key = normalize(idempotencyKey);
+        if (key == null) {
+            return place(null, null, buyer);
+        }
+        String scopedKey = scope + ":" + key;
+        CompletableFuture<OrderStatusResponse> result = new CompletableFuture<>();
+        CompletableFuture<OrderStatusResponse> original = results.putIfAbsent(scopedKey, result);
+        if (original != null) {
+            return await(original);
+        }
+        try {
+            OrderStatusResponse response = place(userId, key, buyer);
+            result.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            //Lần đầu lỗi thì chưa có đơn nào, các request đang chờ nhận cùng lỗi còn lần gửi sau được đặt lại
+            results.remove(scopedKey, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private OrderStatusResponse place(Integer userId, String key, Supplier<User> buyer) {
+        List<Item> items = this.cartService.getItems();
+        if (items.isEmpty()) {
+            //Giỏ đã được xoá bởi lần đặt đầu tiên mà cache không còn key
+            Optional<Integer> existing = findExisting(userId, key);
+            if (existing.isPresent()) {
+                return completed(existing.get());
+            }
+            throw new IllegalArgumentException("Cart is empty");
+        }
+        List<Integer> productIds = items.stream().map(Item::getId).toList();
+        List<Integer> quantities = items.stream().map(Item::getQty).toList();
+        OrderStatusResponse response;
+        //Chế độ async chỉ đưa đơn vào hàng đợi, khách nhận reference để theo dõi trạng thái
+        if (this.orderIntake.isEnabled()) {
+            response = OrderStatusResponse
+                    .builder()
+                    .reference(this.orderIntake.submit(buyer, key, productIds, quantities))
+                    .status(OrderStatusResponse.Status.QUEUED)
+                    .build();
+        } else {
+            response = completed(createOrder(userId, buyer, key, productIds, quantities));
+        }
+        this.cartService.clear();
+        return response;
+    }
+
+    //Tài khoản khách được tạo trong cùng transaction với đơn, đơn lỗi thì tài khoản cũng không được lưu
+    private Integer createOrder(Integer userId, Supplier<User> buyer, String key, List<Integer> productIds, List<Integer> quantities) {
+        this.inventoryService.reserve(productIds, quantities);
+        try {
+            return this.transactionTemplate.execute(status -> this.orderService.createOrder(buyer.get(), key, productIds, quantities).getId());
+        } catch (DataIntegrityViolationException e) {
+            this.inventoryService.release(productIds, quantities);
+            Optional<Integer> existing = findExisting(userId, key);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            this.inventoryService.release(productIds, quantities);
+            throw e;
+        }
+    }
+
+    //Chỉ trả về đơn của chính người mua, khách không có đơn nào để tra lại
+    private Optional<Integer> findExisting(Integer userId, String key) {
+        if (userId == null || key == null) {
+            return Optional.empty();
+        }
+        return this.orderRepository.findIdByUserIdAndIdempotencyKey(userId, key);
+    }
+
+    private static OrderStatusResponse await(CompletableFuture<OrderStatusResponse> original) {
+        try {
+            return original.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static OrderStatusResponse completed(Integer orderId) {
+        return OrderStatusResponse
+                .builder()
+                .status(OrderStatusResponse.Status.COMPLETED)
+                .orderId(orderId)
+                .build();
+    }
+
+    private static String normalize(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        return key;
+    }
+}
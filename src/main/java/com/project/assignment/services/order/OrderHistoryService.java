@@ -0,0 +1,132 @@
+package com.project.assignment.services.order;
+
+import com.project.assignment.repositories.OrderDetailRepository;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.responses.OrderHistoryResponse;
+import com.project.assignment.responses.OrderLineResponse;
+import com.project.assignment.responses.OrderSummaryResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/* Lịch sử đơn hàng: một câu lấy trang đơn (projection, keyset theo id với đơn của một user, theo (order_date, id) với admin)
+   và một câu IN lấy dòng của cả trang. Chỉ lọc theo ngày khi có from hoặc to, không lọc thì đơn không có order_date vẫn được trả về.
+   Không đụng tới entity Order nên không có lazy load OrderDetail -> Product -> ProductImage */
+@Service
+@RequiredArgsConstructor
+public class OrderHistoryService {
+    public static final int MAX_LIMIT = 100;
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    private final OrderRepository orderRepository;
+    private final OrderDetailRepository orderDetailRepository;
+
+    //userId = null: mọi user (admin)
+    public OrderHistoryResponse getHistory(Integer userId, LocalDate from, LocalDate to, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        boolean filtered = from != null || to != null;
+        Date fromDate = Date.valueOf(from != null ? from : MIN_DATE);
+        Date toDate = Date.valueOf(to != null ? to : MAX_DATE);
+        Cursor position = Cursor.decode(cursor, toDate);
+        //Lấy dư một dòng để biết còn trang sau
+        PageRequest pageRequest = PageRequest.of(0, size + 1);
+        List<OrderRepository.OrderRow> rows;
+        if (userId != null) {
+            rows = filtered
+                    ? orderRepository.findHistoryByUserBetween(userId, fromDate, toDate, position.id, pageRequest)
+                    : orderRepository.findHistoryByUser(userId, position.id, pageRequest);
+        } else if (filtered) {
+            //Có lọc ngày thì trang trước không có đơn thiếu ngày, cursor luôn có ngày
+            rows = orderRepository.findHistory(fromDate, toDate, position.orderDateOr(toDate), position.id, pageRequest);
+        } else if (position.orderDate != null) {
+            rows = orderRepository.findHistoryAll(position.orderDate, position.id, pageRequest);
+        } else {
+            rows = orderRepository.findHistoryUndated(position.id, pageRequest);
+        }
+
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        return OrderHistoryResponse
+                .builder()
+                .orders(toResponses(rows))
+                .nextCursor(hasNext ? Cursor.encode(rows.get(rows.size() - 1)) : null)
+                .build();
+    }
+
+    private List<OrderSummaryResponse> toResponses(List<OrderRepository.OrderRow> rows) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, List<OrderLineResponse>> linesByOrder = orderDetailRepository.findLinesByOrderIds(
+                        rows.stream().map(OrderRepository.OrderRow::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(OrderDetailRepository.LineRow::getOrderId,
+                        Collectors.mapping(line -> OrderLineResponse
+                                .builder()
+                                .productId(line.getProductId())
+                                .productName(line.getProductName())
+                                .qty(line.getQty())
+                                .price(line.getPrice())
+                                .build(), Collectors.toList())));
+        return rows
+                .stream()
+                .map(row -> OrderSummaryResponse
+                        .builder()
+                        .id(row.getId())
+                        .orderDate(row.getOrderDate())
+                        .totalMoney(row.getTotalMoney())
+                        .userId(row.getUserId())
+                        .reference(row.getReference())
+                        .items(linesByOrder.getOrDefault(row.getId(), Collections.emptyList()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /* Vị trí keyset (order_date, id của đơn cuối trang) mã hoá base64 để client chỉ gửi lại, không tự ghép.
+       Trang đầu: ngày = to, id = Integer.MAX_VALUE. Đơn không có order_date thì phần ngày để trống */
+    private static final class Cursor {
+        private final Date orderDate;
+        private final Integer id;
+
+        private Cursor(Date orderDate, Integer id) {
+            this.orderDate = orderDate;
+            this.id = id;
+        }
+
+        Date orderDateOr(Date defaultDate) {
+            return orderDate != null ? orderDate : defaultDate;
+        }
+
+        static String encode(OrderRepository.OrderRow row) {
+            String date = row.getOrderDate() != null ? new Date(row.getOrderDate().getTime()).toString() : "";
+            String raw = date + "|" + row.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token, Date toDate) {
+            if (token == null || token.isBlank()) {
+                return new Cursor(toDate, Integer.MAX_VALUE);
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8).split("\\|", 2);
+                return new Cursor(parts[0].isEmpty() ? null : Date.valueOf(parts[0]), Integer.valueOf(parts[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
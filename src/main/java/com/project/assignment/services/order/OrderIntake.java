@@ -0,0 +1,294 @@
+package com.project.assignment.services.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.assignment.models.Order;
+import com.project.assignment.models.User;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.responses.OrderStatusResponse;
+import com.project.assignment.services.OrderService;
+import com.project.assignment.services.ProductService;
+import com.project.assignment.services.inventory.InventoryService;
+import com.project.assignment.systems.ObjectNotFoundException;
+import com.project.assignment.systems.OrderRejectedException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/* Nhận đơn bất đồng bộ (order.intake.mode=async): request chỉ kiểm tra giỏ, ghi journal rồi đưa đơn vào hàng đợi có giới hạn
+   và trả reference ngay. Một thread lấy đơn theo lô và commit cả lô trong một transaction (group commit).
+   Hàng đợi đầy thì từ chối đơn mới thay vì để request chờ connection */
+@Component
+public class OrderIntake {
+    public static final String MODE_ASYNC = "async";
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntake.class);
+    private static final int MAX_TRACKED_STATUSES = 10000;
+    private static final long RETRY_DELAY_MS = 5000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000;
+
+    private final OrderService orderService;
+    private final ProductService productService;
+    private final OrderRepository orderRepository;
+    private final InventoryService inventoryService;
+    private final OrderJournal journal;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<OrderRequest> queue;
+    //Trạng thái của các đơn gần đây, đơn cũ hơn thì tra theo reference trong database
+    private final Map<String, OrderStatusResponse> statuses = Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, OrderStatusResponse> eldest) {
+                    return size() > MAX_TRACKED_STATUSES;
+                }
+            });
+    private volatile boolean running;
+    private Thread consumer;
+
+    public OrderIntake(OrderService orderService,
+                       ProductService productService,
+                       OrderRepository orderRepository,
+                       InventoryService inventoryService,
+                       ObjectMapper objectMapper,
+                       @Value("${order.intake.mode:sync}") String mode,
+                       @Value("${order.intake.queue-capacity:1000}") int queueCapacity,
+                       @Value("${order.intake.batch-size:50}") int batchSize,
+                       @Value("${order.intake.journal:data/order-intake.journal}") String journalPath) {
+        this.orderService = orderService;
+        this.productService = productService;
+        this.orderRepository = orderRepository;
+        this.inventoryService = inventoryService;
+        this.journal = new OrderJournal(Path.of(journalPath), objectMapper);
+        this.enabled = MODE_ASYNC.equalsIgnoreCase(mode);
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* Đơn còn trong journal từ lần chạy trước được commit trước khi nhận đơn mới từ hàng đợi */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        List<OrderRequest> unfinished = journal.open();
+        if (!unfinished.isEmpty()) {
+            logger.info("Replaying {} queued orders from journal", unfinished.size());
+        }
+        running = true;
+        consumer = new Thread(() -> consume(unfinished), "order-intake");
+        consumer.start();
+    }
+
+    //buyer chỉ được gọi khi giỏ hợp lệ và đã giữ được hàng, để đơn bị từ chối không tạo tài khoản khách
+    public String submit(Supplier<User> buyer, String idempotencyKey, List<Integer> productIds, List<Integer> quantities) {
+        validate(productIds, quantities);
+        if (queue.remainingCapacity() == 0) {
+            throw new OrderRejectedException("Order queue is full");
+        }
+        //Giữ hàng trước khi hứa với khách, đơn bị từ chối hoặc lỗi lúc commit thì trả lại
+        inventoryService.reserve(productIds, quantities);
+        User user;
+        try {
+            user = buyer.get();
+        } catch (RuntimeException e) {
+            inventoryService.release(productIds, quantities);
+            throw e;
+        }
+        OrderRequest request = new OrderRequest(UUID.randomUUID().toString(), idempotencyKey, user.getId(),
+                new ArrayList<>(productIds), new ArrayList<>(quantities), System.currentTimeMillis());
+        try {
+            journal.accepted(request);
+        } catch (IOException e) {
+            inventoryService.release(productIds, quantities);
+            throw new OrderRejectedException("Could not record order", e);
+        }
+        statuses.put(request.getReference(), status(request.getReference(), OrderStatusResponse.Status.QUEUED));
+        if (!queue.offer(request)) {
+            statuses.remove(request.getReference());
+            markDone(List.of(request.getReference()));
+            inventoryService.release(productIds, quantities);
+            throw new OrderRejectedException("Order queue is full");
+        }
+        return request.getReference();
+    }
+
+    //Trả về null nếu không biết reference này
+    public OrderStatusResponse getStatus(String reference) {
+        OrderStatusResponse status = statuses.get(reference);
+        if (status != null) {
+            return status;
+        }
+        return orderRepository.findIdByReference(reference)
+                .map(orderId -> OrderStatusResponse
+                        .builder()
+                        .reference(reference)
+                        .status(OrderStatusResponse.Status.COMPLETED)
+                        .orderId(orderId)
+                        .build())
+                .orElse(null);
+    }
+
+    //Kiểm tra nhanh qua cache snapshot, giá và tồn tại của product được kiểm tra lại lúc commit
+    private void validate(List<Integer> productIds, List<Integer> quantities) {
+        if (productIds.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
+        for (int i = 0; i < productIds.size(); i++) {
+            Integer qty = quantities.get(i);
+            if (qty == null || qty <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for product " + productIds.get(i));
+            }
+            productService.findSnapshot(productIds.get(i));
+        }
+    }
+
+    private void consume(List<OrderRequest> unfinished) {
+        try {
+            for (int from = 0; from < unfinished.size(); from += batchSize) {
+                replay(unfinished.subList(from, Math.min(from + batchSize, unfinished.size())));
+            }
+            List<OrderRequest> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                OrderRequest first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            //Đơn chưa commit vẫn nằm trong journal và được chạy lại ở lần khởi động sau
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Đơn đã commit nhưng chưa kịp ghi "done" vào journal trước khi crash thì không tạo lại
+    private void replay(List<OrderRequest> batch) throws InterruptedException {
+        List<String> references = batch.stream().map(OrderRequest::getReference).toList();
+        Set<String> committed;
+        while (true) {
+            try {
+                committed = new HashSet<>(orderRepository.findExistingReferences(references));
+                break;
+            } catch (RuntimeException e) {
+                logger.warn("Could not check replayed orders, retrying", e);
+                TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS);
+            }
+        }
+        markDone(committed);
+        List<OrderRequest> remaining = new ArrayList<>(batch.size());
+        for (OrderRequest request : batch) {
+            if (!committed.contains(request.getReference())) {
+                remaining.add(request);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            //Hàng giữ trong bộ nhớ đã mất khi khởi động lại, giữ lại cho các đơn đã hứa
+            for (OrderRequest request : remaining) {
+                inventoryService.forceReserve(request.getProductIds(), request.getQuantities());
+            }
+            commit(remaining);
+        }
+    }
+
+    /* Lỗi dữ liệu của một đơn làm cả lô rollback, khi đó commit lại từng đơn để chỉ loại đơn lỗi.
+       Lỗi khác (mất kết nối database...) thì chờ rồi thử lại cả lô, đơn vẫn nằm trong journal */
+    private void commit(List<OrderRequest> batch) throws InterruptedException {
+        while (true) {
+            try {
+                completed(orderService.createOrders(batch));
+                return;
+            } catch (ObjectNotFoundException | IllegalArgumentException | IllegalStateException
+                     | DataIntegrityViolationException e) {
+                if (batch.size() == 1) {
+                    failed(batch.get(0), e);
+                } else {
+                    for (OrderRequest request : batch) {
+                        commit(List.of(request));
+                    }
+                }
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Could not commit {} queued orders, retrying", batch.size(), e);
+                TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    private void completed(List<Order> orders) {
+        markDone(orders.stream().map(Order::getReference).toList());
+        for (Order order : orders) {
+            OrderStatusResponse status = status(order.getReference(), OrderStatusResponse.Status.COMPLETED);
+            status.setOrderId(order.getId());
+            statuses.put(order.getReference(), status);
+        }
+    }
+
+    private void failed(OrderRequest request, RuntimeException e) {
+        logger.warn("Queued order {} failed", request.getReference(), e);
+        markDone(List.of(request.getReference()));
+        inventoryService.release(request.getProductIds(), request.getQuantities());
+        OrderStatusResponse status = status(request.getReference(), OrderStatusResponse.Status.FAILED);
+        //Không trả chi tiết SQL cho khách
+        status.setMessage(e instanceof DataIntegrityViolationException ? "Order could not be saved" : e.getMessage());
+        statuses.put(request.getReference(), status);
+    }
+
+    //Không ghi được "done" thì lần replay sau sẽ thấy đơn đã có trong database và bỏ qua
+    private void markDone(Collection<String> references) {
+        try {
+            journal.done(references);
+        } catch (IOException e) {
+            logger.error("Could not write order journal", e);
+        }
+    }
+
+    private static OrderStatusResponse status(String reference, OrderStatusResponse.Status status) {
+        return OrderStatusResponse
+                .builder()
+                .reference(reference)
+                .status(status)
+                .build();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (consumer == null) {
+            return;
+        }
+        running = false;
+        consumer.join(SHUTDOWN_TIMEOUT_MS);
+        if (consumer.isAlive()) {
+            consumer.interrupt();
+            consumer.join(SHUTDOWN_TIMEOUT_MS);
+        }
+        journal.close();
+    }
+}
@@ -0,0 +1,121 @@
+package com.project.assignment.services.order;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Journal append-only trên đĩa cho hàng đợi đặt hàng, mỗi dòng một record:
+   "A <json>" khi đơn được nhận, "D <reference>" khi đơn đã commit hoặc bị loại.
+   Mỗi lần ghi đều force xuống đĩa trước khi trả về, nên đơn đã trả reference cho khách không mất khi crash.
+   Khi không còn đơn nào đang chờ thì file được cắt về rỗng để không lớn dần */
+class OrderJournal implements Closeable {
+    private static final String ACCEPTED = "A ";
+    private static final String DONE = "D ";
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+    private int pending;
+
+    OrderJournal(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    //Đọc lại journal cũ và trả về các đơn đã nhận nhưng chưa xong, theo thứ tự nhận
+    synchronized List<OrderRequest> open() throws IOException {
+        Map<String, OrderRequest> unfinished = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(ACCEPTED)) {
+                        OrderRequest request;
+                        try {
+                            request = objectMapper.readValue(line.substring(ACCEPTED.length()), OrderRequest.class);
+                        } catch (JsonProcessingException e) {
+                            //Dòng ghi dở lúc crash, đơn này chưa được force nên chưa trả reference cho khách
+                            continue;
+                        }
+                        unfinished.put(request.getReference(), request);
+                    } else if (line.startsWith(DONE)) {
+                        unfinished.remove(line.substring(DONE.length()));
+                    }
+                }
+            }
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        pending = unfinished.size();
+        if (pending == 0) {
+            channel.truncate(0);
+        } else if (!endsWithNewline()) {
+            //Kết thúc dòng ghi dở để record tiếp theo không bị nối vào nó
+            append("\n");
+        }
+        return new ArrayList<>(unfinished.values());
+    }
+
+    synchronized void accepted(OrderRequest request) throws IOException {
+        append(ACCEPTED + objectMapper.writeValueAsString(request) + "\n");
+        pending++;
+    }
+
+    //Cả lô được ghi bằng một lần write và một lần force
+    synchronized void done(Collection<String> references) throws IOException {
+        if (references.isEmpty()) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        for (String reference : references) {
+            records.append(DONE).append(reference).append('\n');
+        }
+        append(records.toString());
+        pending = Math.max(0, pending - references.size());
+        if (pending == 0) {
+            channel.truncate(0);
+            channel.force(false);
+        }
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (reader.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            reader.read(last, reader.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void append(String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.project.assignment.services.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* Đơn đã được nhận vào hàng đợi nhưng chưa commit, được ghi nguyên dạng JSON vào journal */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRequest {
+    private String reference;
+    //null với record ghi trước khi có idempotency key
+    private String idempotencyKey;
+    private Integer userId;
+    private List<Integer> productIds;
+    private List<Integer> quantities;
+    private long acceptedAt;
+}
@@ -0,0 +1,34 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.services.category.CategoryChangedEvent;
+import com.project.assignment.utilities.ETags;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Version chung của catalog (product, ảnh, category), làm ETag cho các endpoint trả về danh sách.
+   Bộ đếm nằm trong bộ nhớ nên kèm thời điểm khởi động để ETag cũ không trùng sau khi restart */
+@Component
+public class CatalogVersion {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public String etag() {
+        return ETags.strong("catalog", epoch, version.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
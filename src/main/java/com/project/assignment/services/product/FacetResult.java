@@ -0,0 +1,18 @@
+package com.project.assignment.services.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/* Kết quả lọc facet: id sản phẩm của trang hiện tại, tổng số khớp và số lượng theo từng facet */
+@Getter
+@AllArgsConstructor
+public class FacetResult {
+    private final List<Integer> productIds;
+    private final int total;
+    private final Map<Integer, Integer> categoryCounts;
+    //key là PriceRange.getKey()
+    private final Map<String, Integer> priceCounts;
+}
@@ -4,11 +4,15 @@ import com.project.assignment.dtos.ProductDTO;
 import com.project.assignment.dtos.ProductImageDTO;
 import com.project.assignment.models.Product;
 import com.project.assignment.models.ProductImage;
+import com.project.assignment.responses.CursorProductResponse;
+import com.project.assignment.responses.ListProductResponse;
 import com.project.assignment.responses.ProductResponse;
 import com.project.assignment.systems.NotFoundException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
+import java.util.List;
+
 public interface IProductService {
     ProductResponse createProduct(ProductDTO productDTO) throws NotFoundException;
 
@@ -16,6 +20,12 @@ public interface IProductService {
 
     Page<Product> getAllProducts(PageRequest pageRequest);
 
+    ListProductResponse getProductList(PageRequest pageRequest, boolean withTotal);
+
+    CursorProductResponse scrollProducts(Integer categoryId, String sort, String cursor, int limit);
+
+    List<ProductResponse> searchProducts(String query, int limit);
+
     ProductResponse getProduct(int id) throws NotFoundException;
 
     ProductResponse updateProduct(int id, ProductDTO productDTO) throws NotFoundException;
@@ -0,0 +1,47 @@
+package com.project.assignment.services.product;
+
+import lombok.Getter;
+
+/* Các khoảng giá cố định dùng làm facet trên trang shop */
+@Getter
+public enum PriceRange {
+    UNDER_20("0-20", "$0 - $20", 0, 20),
+    FROM_20_TO_50("20-50", "$20 - $50", 20, 50),
+    FROM_50_TO_100("50-100", "$50 - $100", 50, 100),
+    FROM_100_TO_200("100-200", "$100 - $200", 100, 200),
+    OVER_200("200+", "$200+", 200, Float.MAX_VALUE);
+
+    private final String key;
+    private final String label;
+    private final float min;
+    private final float max;
+
+    PriceRange(String key, String label, float min, float max) {
+        this.key = key;
+        this.label = label;
+        this.min = min;
+        this.max = max;
+    }
+
+    public static PriceRange of(Float price) {
+        if (price == null) {
+            return null;
+        }
+        //Các khoảng được khai báo theo thứ tự tăng dần
+        for (PriceRange range : values()) {
+            if (price < range.max) {
+                return range;
+            }
+        }
+        return OVER_200;
+    }
+
+    public static PriceRange fromKey(String key) {
+        for (PriceRange range : values()) {
+            if (range.key.equals(key)) {
+                return range;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,122 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.services.category.CategoryChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/* Cache read-through ProductSnapshot theo id: LRU giới hạn số phần tử và có TTL.
+   Mọi lần ghi product, ảnh hoặc category đều xoá entry tương ứng qua event */
+@Component
+public class ProductCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    //LinkedHashMap theo thứ tự truy cập, mọi thao tác đều giữ lock trên chính map này
+    private final LinkedHashMap<Integer, Entry> entries;
+    //Tăng mỗi lần invalidate để không cache lại snapshot đã cũ được load song song với lần ghi
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                        @Value("${product.cache.ttl:10m}") Duration ttl) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<ProductSnapshot> get(Integer productId, Supplier<Optional<ProductSnapshot>> loader) {
+        long startGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.snapshot);
+                }
+                entries.remove(productId);
+                evictions.incrementAndGet();
+            }
+            startGeneration = generation;
+        }
+        misses.incrementAndGet();
+        Optional<ProductSnapshot> snapshot = loader.get();
+        snapshot.ifPresent(value -> {
+            synchronized (entries) {
+                if (generation == startGeneration) {
+                    entries.put(productId, new Entry(value, System.nanoTime()));
+                }
+            }
+        });
+        return snapshot;
+    }
+
+    public void invalidate(Integer productId) {
+        synchronized (entries) {
+            generation++;
+            if (entries.remove(productId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public ProductCacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new ProductCacheStats(hits.get(), misses.get(), evictions.get(), invalidations.get(), size, maxSize);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductId() == null) {
+            invalidateAll();
+        } else {
+            invalidate(event.getProductId());
+        }
+    }
+
+    //Snapshot có tên category nên đổi category thì xoá toàn bộ
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidateAll();
+    }
+
+    private static class Entry {
+        private final ProductSnapshot snapshot;
+        private final long loadedAt;
+
+        Entry(ProductSnapshot snapshot, long loadedAt) {
+            this.snapshot = snapshot;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.project.assignment.services.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductCacheStats {
+    private final long hits;
+    private final long misses;
+    //Bị đẩy ra do đầy hoặc hết TTL, không tính các lần invalidate khi product được ghi
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+    private final int maxSize;
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
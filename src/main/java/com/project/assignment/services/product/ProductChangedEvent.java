@@ -0,0 +1,17 @@
+package com.project.assignment.services.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* Được publish sau mỗi lần ghi product để các cache/index trong bộ nhớ tự cập nhật.
+   IMPORTED là ghi hàng loạt, productId = null và các index được build lại toàn bộ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    public enum Action {
+        CREATED, UPDATED, DELETED, IMPORTED
+    }
+
+    private final Integer productId;
+    private final Action action;
+}
@@ -0,0 +1,57 @@
+package com.project.assignment.services.product;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/* Cache COUNT(*) của products theo từng filter, xoá toàn bộ khi có product được ghi */
+@Component
+public class ProductCountCache {
+    public static final String ALL = "all";
+
+    //Mỗi count nhớ generation lúc bắt đầu đếm, count của generation cũ coi như không có
+    private final Map<String, Count> counts = new ConcurrentHashMap<>();
+    //Tăng mỗi lần invalidate để không cache lại một count đã cũ được tính song song với lần ghi
+    private final AtomicLong generation = new AtomicLong();
+
+    public static String byCategory(Integer categoryId) {
+        return "category:" + categoryId;
+    }
+
+    public long count(String filter, LongSupplier loader) {
+        Count cached = counts.get(filter);
+        if (cached != null && cached.generation == generation.get()) {
+            return cached.value;
+        }
+        long startGeneration = generation.get();
+        long count = loader.getAsLong();
+        //Không ghi đè count mới hơn do request khác vừa đếm
+        counts.compute(filter, (key, current) ->
+                current != null && current.generation >= startGeneration ? current : new Count(startGeneration, count));
+        return count;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        counts.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate();
+    }
+
+    private static final class Count {
+        private final long generation;
+        private final long value;
+
+        Count(long generation, long value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.project.assignment.services.product;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Mã hoá vị trí keyset (giá trị sort + id của dòng biên) thành token mờ để client gửi lại */
+public final class ProductCursor {
+    public static final String SORT_NAME = "name";
+    public static final String SORT_CREATED = "created";
+
+    private static final String FORWARD = "F";
+    private static final String BACKWARD = "B";
+
+    private final String sort;
+    private final KeysetScrollPosition position;
+
+    private ProductCursor(String sort, KeysetScrollPosition position) {
+        this.sort = sort;
+        this.position = position;
+    }
+
+    public static ProductCursor first(String sort) {
+        return new ProductCursor(normalizeSort(sort), ScrollPosition.keyset());
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public KeysetScrollPosition getPosition() {
+        return position;
+    }
+
+    public Sort toSort() {
+        return SORT_CREATED.equals(sort)
+                ? Sort.by(Sort.Order.desc("createDate"), Sort.Order.desc("id"))
+                : Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id"));
+    }
+
+    public static String encode(String sort, ScrollPosition position, boolean forward) {
+        Map<String, Object> keys = ((KeysetScrollPosition) position).getKeys();
+        String value = SORT_CREATED.equals(sort) ? String.valueOf(keys.get("createDate")) : (String) keys.get("name");
+        String raw = String.join("|", sort, forward ? FORWARD : BACKWARD, String.valueOf(keys.get("id")), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, String defaultSort) {
+        if (token == null || token.isBlank()) {
+            return first(defaultSort);
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            //Giới hạn 4 phần vì tên sản phẩm có thể chứa dấu |
+            String[] parts = raw.split("\\|", 4);
+            String sort = normalizeSort(parts[0]);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            if (SORT_CREATED.equals(sort)) {
+                keys.put("createDate", LocalDate.parse(parts[3]));
+            } else {
+                keys.put("name", parts[3]);
+            }
+            keys.put("id", Integer.valueOf(parts[2]));
+            KeysetScrollPosition position = BACKWARD.equals(parts[1])
+                    ? ScrollPosition.backward(keys)
+                    : ScrollPosition.forward(keys);
+            return new ProductCursor(sort, position);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String normalizeSort(String sort) {
+        return SORT_CREATED.equals(sort) ? SORT_CREATED : SORT_NAME;
+    }
+}
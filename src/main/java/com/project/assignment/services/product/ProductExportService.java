@@ -0,0 +1,104 @@
+package com.project.assignment.services.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.responses.CategoryResponse;
+import com.project.assignment.responses.ImageResponse;
+import com.project.assignment.responses.ProductResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/* Export toàn bộ catalog thành NDJSON (mỗi dòng một product) bằng một cursor duy nhất,
+   ghi thẳng ra output stream nên bộ nhớ không tăng theo số lượng product */
+@Service
+public class ProductExportService {
+    private static final int CLEAR_EVERY = 1000;
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+
+    public ProductExportService(ProductRepository productRepository,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                @Value("${product.export.timeout:1h}") Duration timeout) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+    }
+
+    //Thời gian tối đa của một lần export, chỉ áp dụng cho request export
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    @Transactional
+    public long exportCatalog(OutputStream outputStream) throws IOException {
+        long exported = 0;
+        try (Stream<ProductRepository.CatalogRow> rows = productRepository.streamCatalog()) {
+            Iterator<ProductRepository.CatalogRow> iterator = rows.iterator();
+            ProductResponse current = null;
+            while (iterator.hasNext()) {
+                ProductRepository.CatalogRow row = iterator.next();
+                if (current == null || !current.getId().equals(row.getId())) {
+                    if (current != null) {
+                        writeLine(outputStream, current);
+                        if (++exported % CLEAR_EVERY == 0) {
+                            entityManager.clear();
+                            outputStream.flush();
+                        }
+                    }
+                    current = toResponse(row);
+                }
+                if (row.getImageId() != null) {
+                    current.getImages().add(ImageResponse
+                            .builder()
+                            .id(row.getImageId())
+                            .url(row.getImageUrl())
+                            .build());
+                }
+            }
+            if (current != null) {
+                writeLine(outputStream, current);
+                exported++;
+            }
+        }
+        outputStream.flush();
+        return exported;
+    }
+
+    private void writeLine(OutputStream outputStream, ProductResponse product) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(product));
+        outputStream.write(NEW_LINE);
+    }
+
+    private static ProductResponse toResponse(ProductRepository.CatalogRow row) {
+        return ProductResponse
+                .builder()
+                .id(row.getId())
+                .name(row.getName())
+                .price(row.getPrice())
+                .description(row.getDescription())
+                .createDate(row.getCreateDate())
+                .updateDate(row.getUpdateDate())
+                .category(CategoryResponse
+                        .builder()
+                        .categoryId(row.getCategoryId())
+                        .categoryName(row.getCategoryName())
+                        .build())
+                .images(new ArrayList<>())
+                .build();
+    }
+}
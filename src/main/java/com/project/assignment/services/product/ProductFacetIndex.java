@@ -0,0 +1,379 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.utilities.CoalescingRebuild;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Facet index của trang shop: mỗi category và mỗi khoảng giá là một bitset trên slot của sản phẩm,
+   lọc nhiều facet bằng phép AND/OR bitset thay vì GROUP BY mỗi request */
+@Component
+public class ProductFacetIndex {
+    public static final String SORT_NAME = "name";
+    public static final String SORT_PRICE_ASC = "price_asc";
+    public static final String SORT_PRICE_DESC = "price_desc";
+    public static final String SORT_NEWEST = "newest";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+    private static final int BUILD_BATCH_SIZE = 1000;
+    //Ít kết quả thì sort riêng các kết quả, nhiều thì duyệt theo thứ tự sort toàn cục đã tính sẵn
+    private static final int SMALL_RESULT_THRESHOLD = 2048;
+    private static final List<String> SORTS = List.of(SORT_NAME, SORT_PRICE_ASC, SORT_PRICE_DESC, SORT_NEWEST);
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Integer> slotByProductId = new HashMap<>();
+    private int[] productIds = new int[1024];
+    private String[] names = new String[1024];
+    private float[] prices = new float[1024];
+    private long[] createdDays = new long[1024];
+    private int slotCount;
+
+    private final BitSet live = new BitSet();
+    private final Map<Integer, BitSet> byCategory = new HashMap<>();
+    private final Map<PriceRange, BitSet> byPrice = new EnumMap<>(PriceRange.class);
+    /* Thứ tự sort toàn cục của các slot còn sống, tính một lần khi build xong (không nằm trên đường query)
+       và cập nhật từng slot khi product thay đổi. Chỉ đọc khi giữ read lock, chỉ sửa khi giữ write lock */
+    private final Map<String, SlotOrder> sortedSlots = new HashMap<>();
+    //Đang build thì put không cập nhật thứ tự sort từng slot, thứ tự được tính lại một lần khi build xong
+    private boolean building;
+    private long modCount;
+    private volatile boolean ready;
+    //Build lúc khởi động, build lại sau import, và thử lại khi build lỗi
+    private final CoalescingRebuild rebuild = new CoalescingRebuild("facet-index-rebuild", this::build);
+
+    public ProductFacetIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        for (PriceRange range : PriceRange.values()) {
+            byPrice.put(range, new BitSet());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild.request();
+    }
+
+    //false nếu không đọc được database, CoalescingRebuild sẽ gọi lại
+    public boolean build() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            sortedSlots.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            int lastId = 0;
+            List<ProductRepository.FacetRow> batch;
+            do {
+                batch = productRepository.findFacetRowsAfter(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                for (ProductRepository.FacetRow row : batch) {
+                    put(row);
+                    lastId = row.getId();
+                }
+            } while (batch.size() == BUILD_BATCH_SIZE);
+            ready = true;
+            logger.info("Product facet index built with {} products", live.cardinality());
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Could not build product facet index", e);
+            return false;
+        } finally {
+            sortAll();
+        }
+    }
+
+    /* Sort dưới read lock để query vẫn chạy trong lúc sort, nếu có thay đổi trong lúc đó thì sort lại dưới write lock */
+    private void sortAll() {
+        Map<String, SlotOrder> orders = new HashMap<>();
+        long sortedAt;
+        lock.readLock().lock();
+        try {
+            sortedAt = modCount;
+            SORTS.forEach(sort -> orders.put(sort, SlotOrder.sorted(live, comparator(sort))));
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (modCount != sortedAt) {
+                SORTS.forEach(sort -> orders.put(sort, SlotOrder.sorted(live, comparator(sort))));
+            }
+            sortedSlots.clear();
+            sortedSlots.putAll(orders);
+            building = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuild.stop();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getAction() == ProductChangedEvent.Action.IMPORTED) {
+            rebuild.request();
+            return;
+        }
+        if (event.getAction() == ProductChangedEvent.Action.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        productRepository.findFacetRowById(event.getProductId())
+                .ifPresentOrElse(this::put, () -> remove(event.getProductId()));
+    }
+
+    public void put(ProductRepository.FacetRow row) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByProductId.get(row.getId());
+            if (slot == null) {
+                //Dùng lại slot của product đã xoá để mảng và bitset không lớn mãi khi xoá/tạo lại product
+                slot = live.nextClearBit(0);
+                if (slot == slotCount) {
+                    slotCount++;
+                    ensureCapacity(slotCount);
+                }
+                slotByProductId.put(row.getId(), slot);
+            } else {
+                unsort(slot);
+                clearFacets(slot);
+            }
+            productIds[slot] = row.getId();
+            names[slot] = row.getName();
+            prices[slot] = row.getPrice() != null ? row.getPrice() : 0f;
+            LocalDate createDate = row.getCreateDate();
+            createdDays[slot] = createDate != null ? createDate.toEpochDay() : Long.MIN_VALUE;
+
+            live.set(slot);
+            if (row.getCategoryId() != null) {
+                byCategory.computeIfAbsent(row.getCategoryId(), key -> new BitSet()).set(slot);
+            }
+            byPrice.get(PriceRange.of(prices[slot])).set(slot);
+            resort(slot);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByProductId.remove(productId);
+            if (slot != null) {
+                unsort(slot);
+                clearFacets(slot);
+                //Slot trống, put sau dùng lại
+                names[slot] = null;
+                modCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clearFacets(int slot) {
+        live.clear(slot);
+        byCategory.values().forEach(bits -> bits.clear(slot));
+        byPrice.values().forEach(bits -> bits.clear(slot));
+    }
+
+    //Bỏ slot khỏi các thứ tự sort, phải gọi trước khi giá trị của slot bị ghi đè vì vị trí được tìm theo giá trị cũ
+    private void unsort(int slot) {
+        sortedSlots.forEach((sort, order) -> order.remove(slot, comparator(sort)));
+    }
+
+    private void resort(int slot) {
+        if (building) {
+            return;
+        }
+        sortedSlots.forEach((sort, order) -> order.insert(slot, comparator(sort)));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, productIds.length * 2);
+        productIds = Arrays.copyOf(productIds, newLength);
+        names = Arrays.copyOf(names, newLength);
+        prices = Arrays.copyOf(prices, newLength);
+        createdDays = Arrays.copyOf(createdDays, newLength);
+    }
+
+    /* Số đếm của mỗi facet áp dụng các facet khác đang chọn nhưng không áp dụng chính nó,
+       để người dùng thấy chọn thêm một category/khoảng giá thì được bao nhiêu sản phẩm */
+    public FacetResult query(Collection<Integer> categoryIds, Collection<PriceRange> priceRanges, String sort, int page, int size) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryMask = union(categoryIds, byCategory);
+            BitSet priceMask = union(priceRanges, byPrice);
+
+            BitSet matches = (BitSet) categoryMask.clone();
+            matches.and(priceMask);
+
+            Map<Integer, Integer> categoryCounts = new LinkedHashMap<>();
+            byCategory.forEach((categoryId, bits) -> categoryCounts.put(categoryId, intersectionSize(bits, priceMask)));
+            Map<String, Integer> priceCounts = new LinkedHashMap<>();
+            byPrice.forEach((range, bits) -> priceCounts.put(range.getKey(), intersectionSize(bits, categoryMask)));
+
+            int total = matches.cardinality();
+            return new FacetResult(pageOf(matches, total, sort, page, size), total, categoryCounts, priceCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <K> BitSet union(Collection<K> keys, Map<K, BitSet> facets) {
+        if (keys == null || keys.isEmpty()) {
+            return (BitSet) live.clone();
+        }
+        BitSet mask = new BitSet();
+        for (K key : keys) {
+            BitSet bits = facets.get(key);
+            if (bits != null) {
+                mask.or(bits);
+            }
+        }
+        return mask;
+    }
+
+    private static int intersectionSize(BitSet bits, BitSet mask) {
+        BitSet intersection = (BitSet) bits.clone();
+        intersection.and(mask);
+        return intersection.cardinality();
+    }
+
+    private List<Integer> pageOf(BitSet matches, int total, String sort, int page, int size) {
+        int offset = page * size;
+        List<Integer> result = new ArrayList<>(size);
+        if (offset >= total) {
+            return result;
+        }
+        SlotOrder order = sortedSlots.get(normalizeSort(sort));
+        //Đang build lại thì chưa có thứ tự toàn cục, sort riêng các kết quả
+        if (total <= SMALL_RESULT_THRESHOLD || order == null) {
+            int[] slots = matches.stream()
+                    .boxed()
+                    .sorted(comparator(sort))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            for (int i = offset; i < Math.min(offset + size, slots.length); i++) {
+                result.add(productIds[slots[i]]);
+            }
+            return result;
+        }
+        int skipped = 0;
+        for (int i = 0; i < order.size; i++) {
+            int slot = order.slots[i];
+            if (!matches.get(slot)) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            result.add(productIds[slot]);
+            if (result.size() == size) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Comparator<Integer> comparator(String sort) {
+        Comparator<Integer> byId = Comparator.comparingInt(slot -> productIds[slot]);
+        return switch (normalizeSort(sort)) {
+            case SORT_PRICE_ASC -> Comparator.<Integer>comparingDouble(slot -> prices[slot]).thenComparing(byId);
+            case SORT_PRICE_DESC -> Comparator.<Integer>comparingDouble(slot -> -prices[slot]).thenComparing(byId);
+            case SORT_NEWEST -> Comparator.<Integer>comparingLong(slot -> createdDays[slot]).reversed().thenComparing(byId.reversed());
+            default -> Comparator.<Integer, String>comparing(slot -> names[slot], Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(byId);
+        };
+    }
+
+    private static String normalizeSort(String sort) {
+        if (SORT_PRICE_ASC.equals(sort) || SORT_PRICE_DESC.equals(sort) || SORT_NEWEST.equals(sort)) {
+            return sort;
+        }
+        return SORT_NAME;
+    }
+
+    //Mảng slot đã sort, thêm/bớt một slot bằng binary search và dịch mảng thay vì sort lại toàn bộ
+    private static final class SlotOrder {
+        private int[] slots;
+        private int size;
+
+        static SlotOrder sorted(BitSet live, Comparator<Integer> comparator) {
+            SlotOrder order = new SlotOrder();
+            order.slots = live.stream()
+                    .boxed()
+                    .sorted(comparator)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            order.size = order.slots.length;
+            return order;
+        }
+
+        void insert(int slot, Comparator<Integer> comparator) {
+            int index = search(slot, comparator);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(16, size * 2));
+            }
+            System.arraycopy(slots, index, slots, index + 1, size - index);
+            slots[index] = slot;
+            size++;
+        }
+
+        void remove(int slot, Comparator<Integer> comparator) {
+            int index = search(slot, comparator);
+            if (index < size && slots[index] == slot) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+
+        //Vị trí đầu tiên không đứng trước slot, các comparator đều so thêm theo id nên không có hai slot bằng nhau
+        private int search(int slot, Comparator<Integer> comparator) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(slots[mid], slot) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
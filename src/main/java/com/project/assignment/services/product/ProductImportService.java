@@ -0,0 +1,376 @@
+package com.project.assignment.services.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.assignment.dtos.ProductImportDTO;
+import com.project.assignment.models.Category;
+import com.project.assignment.models.Product;
+import com.project.assignment.models.ProductImage;
+import com.project.assignment.repositories.CategoryRepository;
+import com.project.assignment.responses.ImportReportResponse;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Import hàng loạt product từ CSV hoặc NDJSON. Category được load một lần vào map,
+   mỗi lô dòng hợp lệ được ghi trong một transaction để Hibernate gom insert thành JDBC batch */
+@Service
+public class ProductImportService {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_NAME_LENGTH = 350;
+    private static final int MAX_DESCRIPTION_LENGTH = 300;
+    private static final int MAX_URL_LENGTH = 300;
+    private static final String IMAGE_SEPARATOR = "\\|";
+
+    private final CategoryRepository categoryRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxSize;
+
+    public ProductImportService(CategoryRepository categoryRepository,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${product.import.batch-size:500}") int batchSize,
+                                @Value("${product.import.max-size:100MB}") DataSize maxSize) {
+        this.categoryRepository = categoryRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxSize = maxSize.toBytes();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /* Đoán định dạng theo tham số format, nếu không có thì theo đuôi file */
+    public static String resolveFormat(String format, String fileName) {
+        String value = format != null && !format.isBlank() ? format : fileName;
+        if (value != null) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(FORMAT_NDJSON) || lower.endsWith("jsonl") || lower.endsWith("json")) {
+                return FORMAT_NDJSON;
+            }
+            if (lower.endsWith(FORMAT_CSV)) {
+                return FORMAT_CSV;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format, use csv or ndjson");
+    }
+
+    public ImportReportResponse importProducts(InputStream inputStream, String format) throws IOException {
+        long start = System.currentTimeMillis();
+        Map<Integer, Category> categories = categoryRepository.findAll()
+                .stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        Report report = new Report();
+        //Không tính thời gian build lại các index sau khi import
+        long elapsed = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new LimitedInputStream(inputStream, maxSize), StandardCharsets.UTF_8))) {
+            RowParser parser = FORMAT_CSV.equals(format) ? new CsvRowParser(reader.readLine()) : this::parseJsonRow;
+            int lineNumber = FORMAT_CSV.equals(format) ? 1 : 0;
+            List<PendingRow> pending = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                report.totalRows++;
+                try {
+                    ProductImportDTO row = parser.parse(line);
+                    validate(row, categories);
+                    pending.add(new PendingRow(lineNumber, row));
+                } catch (IllegalArgumentException e) {
+                    report.fail(lineNumber, e.getMessage());
+                }
+                if (pending.size() >= batchSize) {
+                    write(pending, categories, report);
+                    pending.clear();
+                }
+            }
+            write(pending, categories, report);
+            elapsed = Math.max(1, System.currentTimeMillis() - start);
+        } finally {
+            if (report.imported > 0) {
+                eventPublisher.publishEvent(new ProductChangedEvent(null, ProductChangedEvent.Action.IMPORTED));
+            }
+        }
+        logger.info("Imported {} of {} product rows in {} ms", report.imported, report.totalRows, elapsed);
+        return ImportReportResponse
+                .builder()
+                .totalRows(report.totalRows)
+                .imported(report.imported)
+                .failed(report.failed)
+                .elapsedMillis(elapsed)
+                .rowsPerSecond(report.totalRows * 1000L / elapsed)
+                .errors(report.errors)
+                .errorsTruncated(report.failed > report.errors.size())
+                .build();
+    }
+
+    //Một transaction cho cả lô, lỗi database thì cả lô bị tính là thất bại
+    private void write(List<PendingRow> rows, Map<Integer, Category> categories, Report report) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDate today = LocalDate.now();
+                for (PendingRow pendingRow : rows) {
+                    ProductImportDTO row = pendingRow.row;
+                    Product product = Product
+                            .builder()
+                            .name(row.getName().trim())
+                            .price(row.getPrice())
+                            .description(row.getDescription())
+                            .category(categories.get(row.getCategoryId()))
+                            .createDate(today)
+                            .build();
+                    entityManager.persist(product);
+                    for (String url : row.getImages()) {
+                        entityManager.persist(ProductImage.builder().product(product).url(url).build());
+                    }
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            report.imported += rows.size();
+        } catch (RuntimeException e) {
+            logger.warn("Could not write import batch starting at line {}", rows.get(0).line, e);
+            for (PendingRow pendingRow : rows) {
+                report.fail(pendingRow.line, "Could not save row: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void validate(ProductImportDTO row, Map<Integer, Category> categories) {
+        if (row.getName() == null || row.getName().isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (row.getName().trim().length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("name must be at most " + MAX_NAME_LENGTH + " characters");
+        }
+        if (row.getPrice() == null || row.getPrice().isNaN() || row.getPrice() < 0) {
+            throw new IllegalArgumentException("price must be a number >= 0");
+        }
+        if (row.getDescription() != null && row.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException("description must be at most " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+        if (row.getCategoryId() == null) {
+            throw new IllegalArgumentException("category_id is required");
+        }
+        if (!categories.containsKey(row.getCategoryId())) {
+            throw new IllegalArgumentException("Category " + row.getCategoryId() + " not found");
+        }
+        if (row.getImages() == null) {
+            row.setImages(new ArrayList<>());
+        }
+        if (row.getImages().size() > ProductImage.MAXIMUM_IMAGE_PER_PRODUCT) {
+            throw new IllegalArgumentException("At most " + ProductImage.MAXIMUM_IMAGE_PER_PRODUCT + " images per product");
+        }
+        for (String url : row.getImages()) {
+            if (url == null || url.isBlank() || url.length() > MAX_URL_LENGTH) {
+                throw new IllegalArgumentException("Invalid image url");
+            }
+        }
+    }
+
+    private ProductImportDTO parseJsonRow(String line) {
+        try {
+            return objectMapper.readValue(line, ProductImportDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private interface RowParser {
+        ProductImportDTO parse(String line);
+    }
+
+    /* CSV có dòng header, cột được nhận theo tên: name, price, description, category_id, images (nhiều url cách nhau bởi |).
+       Hỗ trợ field trong dấu nháy kép, không hỗ trợ xuống dòng bên trong field */
+    private static class CsvRowParser implements RowParser {
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        CsvRowParser(String header) {
+            if (header == null) {
+                throw new IllegalArgumentException("CSV file is empty");
+            }
+            if (header.startsWith("\uFEFF")) {
+                header = header.substring(1);
+            }
+            List<String> names = split(header);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : List.of("name", "price", "category_id")) {
+                if (!columns.containsKey(required)) {
+                    throw new IllegalArgumentException("CSV header is missing column " + required);
+                }
+            }
+        }
+
+        @Override
+        public ProductImportDTO parse(String line) {
+            List<String> fields = split(line);
+            ProductImportDTO row = new ProductImportDTO();
+            row.setName(field(fields, "name"));
+            row.setDescription(field(fields, "description"));
+            String price = field(fields, "price");
+            String categoryId = field(fields, "category_id");
+            try {
+                row.setPrice(price == null ? null : Float.parseFloat(price.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("price must be a number >= 0");
+            }
+            try {
+                row.setCategoryId(categoryId == null ? null : Integer.parseInt(categoryId.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("category_id must be an integer");
+            }
+            String images = field(fields, "images");
+            if (images != null && !images.isBlank()) {
+                row.setImages(Arrays.stream(images.split(IMAGE_SEPARATOR))
+                        .map(String::trim)
+                        .filter(url -> !url.isEmpty())
+                        .collect(Collectors.toList()));
+            }
+            return row;
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index);
+            return value.isEmpty() ? null : value;
+        }
+
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+    }
+
+    //Body không có Content-Length (chunked) thì giới hạn kích thước được kiểm tra trong lúc đọc
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxSize;
+        private long read;
+
+        LimitedInputStream(InputStream in, long maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            read += n;
+            if (read > maxSize) {
+                throw new IOException("Import file is too large! Maximum size is " + DataSize.ofBytes(maxSize).toMegabytes() + "MB");
+            }
+        }
+    }
+
+    private static class PendingRow {
+        private final int line;
+        private final ProductImportDTO row;
+
+        PendingRow(int line, ProductImportDTO row) {
+            this.line = line;
+            this.row = row;
+        }
+    }
+
+    private static class Report {
+        private int totalRows;
+        private int imported;
+        private int failed;
+        private final List<ImportReportResponse.RowError> errors = new ArrayList<>();
+
+        void fail(int line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReportResponse.RowError(line, message));
+            }
+        }
+    }
+}
@@ -9,16 +9,25 @@ import com.project.assignment.repositories.CategoryRepository;
 import com.project.assignment.repositories.ProductImageRepository;
 import com.project.assignment.repositories.ProductRepository;
 import com.project.assignment.responses.CategoryResponse;
+import com.project.assignment.responses.CursorProductResponse;
 import com.project.assignment.responses.ImageResponse;
+import com.project.assignment.responses.ListProductResponse;
 import com.project.assignment.responses.ProductResponse;
+import com.project.assignment.services.ProductService;
+import com.project.assignment.services.product_image.ProductImageRemovedEvent;
 import com.project.assignment.systems.NotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +36,10 @@ public class ProductRestService implements IProductService {
     private final ProductRepository productRepository;
     private final ProductImageRepository productImageRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductCountCache productCountCache;
+    private final ProductService productService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public ProductResponse createProduct(ProductDTO productDTO) throws NotFoundException {
@@ -39,9 +52,11 @@ public class ProductRestService implements IProductService {
                 .category(category)
                 .createDate(LocalDate.now())
                 .build();
+        Integer productId = productRepository.save(product).getId();
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.CREATED));
         return ProductResponse
                 .builder()
-                .id(productRepository.save(product).getId())
+                .id(productId)
                 .build();
     }
 
@@ -65,14 +80,63 @@ public class ProductRestService implements IProductService {
         return productRepository.findAll(pageRequest);
     }
 
+    /* Query nội dung chạy đúng một lần, tổng số lấy từ count đã cache hoặc bỏ qua khi withTotal=false */
+    @Override
+    public ListProductResponse getProductList(PageRequest pageRequest, boolean withTotal) {
+        Slice<Product> slice = productRepository.findAllBy(pageRequest);
+        ListProductResponse response = ListProductResponse
+                .builder()
+                .products(productResponseList(slice.getContent()))
+                .hasNext(slice.hasNext())
+                .build();
+        if (withTotal) {
+            long totalElements = productCountCache.count(ProductCountCache.ALL, productRepository::count);
+            response.setTotalItems((int) totalElements);
+            response.setTotalPages((int) Math.ceil((double) totalElements / pageRequest.getPageSize()));
+        }
+        return response;
+    }
+
    /* public List<ProductResponse> convertToProductResponse(List<Product> products) {
         return products.stream().map(this::convertToProductResponse).collect(Collectors.toList());
     }*/
 
 
-    /* Convert Product -> ProductResponse và convert ProductImage -> ImageResponse -> để không lấy các dữ liệu không cần thiết */
+    @Override
+    public CursorProductResponse scrollProducts(Integer categoryId, String sort, String cursor, int limit) {
+        ProductWindow window = productService.scrollProducts(categoryId, sort, cursor, limit);
+        return CursorProductResponse
+                .builder()
+                .products(productResponseList(window.getProducts()))
+                .nextCursor(window.getNextCursor())
+                .prevCursor(window.getPrevCursor())
+                .build();
+    }
+
+    /* Lấy id theo thứ tự liên quan từ index rồi load bằng khoá chính, giữ nguyên thứ tự đó */
+    @Override
+    public List<ProductResponse> searchProducts(String query, int limit) {
+        List<Integer> productIds = productSearchIndex.search(query, limit);
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Product> products = productService.findAllByIdInOrder(productIds);
+        return productResponseList(products);
+    }
 
+    /* Convert Product -> ProductResponse và convert ProductImage -> ImageResponse -> để không lấy các dữ liệu không cần thiết */
+    /* Ảnh của cả trang được lấy bằng một câu query IN rồi gom theo product id, category đã được fetch cùng product */
     public List<ProductResponse> productResponseList(List<Product> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> productIds = products
+                .stream()
+                .map(Product::getId)
+                .toList();
+        Map<Integer, List<ProductImage>> imagesByProduct = productImageRepository.findByProductIds(productIds)
+                .stream()
+                .collect(Collectors.groupingBy(productImage -> productImage.getProduct().getId()));
 
         return products
                 .stream()
@@ -81,7 +145,7 @@ public class ProductRestService implements IProductService {
                                 product.getCategory()
                         ),
                         convertToImageResponse(
-                                productImageRepository.findByProduct(product)
+                                imagesByProduct.getOrDefault(product.getId(), Collections.emptyList())
                         )
                 ))
                 .collect(Collectors.toList());
@@ -165,6 +229,7 @@ public class ProductRestService implements IProductService {
         product.setUpdateDate(LocalDate.now());
 
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Action.UPDATED));
         return ProductResponse.of(product,
                 convertToCategoryResponse(
                         product.getCategory()
@@ -179,6 +244,9 @@ public class ProductRestService implements IProductService {
     public void deleteProduct(int id) {
 /*        Product exsitedProduct = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));*/
 //        exsitedProduct.removeAllImage();
+        List<String> imageUrls = productImageRepository.findUrlsByProductId(id);
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Action.DELETED));
+        eventPublisher.publishEvent(new ProductImageRemovedEvent(imageUrls));
     }
 }
@@ -0,0 +1,243 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.utilities.CoalescingRebuild;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/* Inverted index trong bộ nhớ trên name và description của product, tìm kiếm không cần LIKE xuống database */
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double PREFIX_PENALTY = 0.6;
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //term -> (product id -> tần suất đã nhân trọng số)
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> termsByProduct = new HashMap<>();
+    private volatile boolean ready;
+    //Build lúc khởi động, build lại sau import, và thử lại khi build lỗi
+    private final CoalescingRebuild rebuild = new CoalescingRebuild("search-index-rebuild", this::build);
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild.request();
+    }
+
+    //false nếu không đọc được database, CoalescingRebuild sẽ gọi lại
+    public boolean build() {
+        try {
+            long start = System.currentTimeMillis();
+            int lastId = 0;
+            int indexed = 0;
+            List<ProductRepository.SearchText> batch;
+            do {
+                batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(BUILD_BATCH_SIZE));
+                for (ProductRepository.SearchText text : batch) {
+                    index(text.getId(), text.getName(), text.getDescription());
+                    lastId = text.getId();
+                }
+                indexed += batch.size();
+            } while (batch.size() == BUILD_BATCH_SIZE);
+            ready = true;
+            logger.info("Product search index built with {} products in {} ms", indexed, System.currentTimeMillis() - start);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Could not build product search index", e);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuild.stop();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getAction() == ProductChangedEvent.Action.IMPORTED) {
+            rebuild.request();
+            return;
+        }
+        if (event.getAction() == ProductChangedEvent.Action.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        productRepository.findTextById(event.getProductId())
+                .ifPresentOrElse(
+                        text -> index(text.getId(), text.getName(), text.getDescription()),
+                        () -> remove(event.getProductId())
+                );
+    }
+
+    public void index(Integer productId, String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(name)) {
+            weights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(description)) {
+            weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, key -> new HashMap<>()).put(productId, weight));
+            termsByProduct.put(productId, new HashSet<>(weights.keySet()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Integer productId) {
+        Set<String> terms = termsByProduct.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Integer, Integer> products = postings.get(term);
+            if (products != null) {
+                products.remove(productId);
+                if (products.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /* Mỗi từ trong câu tìm kiếm khớp chính xác hoặc theo prefix (mọi term có prefix đó, không cắt bớt), sản phẩm phải khớp đủ tất cả các từ.
+       Điểm = trọng số * idf, chỉ limit sản phẩm điểm cao nhất được trả về. Từ dài hơn thường khớp ít sản phẩm hơn nên được xét trước,
+       prefix ngắn như "a" xét sau và chỉ tra các sản phẩm còn lại */
+    public List<Integer> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>(new HashSet<>(tokenize(query)));
+        queryTerms.sort(Comparator.comparingInt(String::length).reversed());
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            int totalProducts = termsByProduct.size();
+            Map<Integer, Double> scores = null;
+            for (String queryTerm : queryTerms) {
+                Map<Integer, Double> termScores = new HashMap<>();
+                if (scores == null) {
+                    NavigableMap<String, Map<Integer, Integer>> matches = postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true);
+                    for (Map.Entry<String, Map<Integer, Integer>> match : matches.entrySet()) {
+                        Map<Integer, Integer> products = match.getValue();
+                        for (Map.Entry<Integer, Integer> product : products.entrySet()) {
+                            termScores.merge(product.getKey(),
+                                    termScore(queryTerm, match.getKey(), product.getValue(), products.size(), totalProducts), Math::max);
+                        }
+                    }
+                } else {
+                    //Đã có ứng viên từ các từ trước: duyệt term của từng ứng viên thay vì toàn bộ posting của prefix
+                    for (Integer productId : scores.keySet()) {
+                        for (String term : termsByProduct.get(productId)) {
+                            if (term.startsWith(queryTerm)) {
+                                Map<Integer, Integer> products = postings.get(term);
+                                termScores.merge(productId,
+                                        termScore(queryTerm, term, products.get(productId), products.size(), totalProducts), Math::max);
+                            }
+                        }
+                    }
+                }
+                if (scores != null) {
+                    Map<Integer, Double> previousScores = scores;
+                    termScores.replaceAll((productId, score) -> score + previousScores.get(productId));
+                }
+                scores = termScores;
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            return topProducts(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static double termScore(String queryTerm, String term, int weight, int productCount, int totalProducts) {
+        double idf = Math.log(1 + (double) totalProducts / productCount);
+        return weight * idf * (term.equals(queryTerm) ? 1 : PREFIX_PENALTY);
+    }
+
+    private static List<Integer> topProducts(Map<Integer, Double> scores, int limit) {
+        Comparator<Map.Entry<Integer, Double>> byRelevance = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Integer, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(limit + 1, byRelevance);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Integer> productIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            productIds.add(top.poll().getKey());
+        }
+        Collections.reverse(productIds);
+        return productIds;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        //Bỏ dấu tiếng Việt để "áo" tìm được "ao"
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase();
+        List<String> terms = new ArrayList<>();
+        for (String term : NON_WORD.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
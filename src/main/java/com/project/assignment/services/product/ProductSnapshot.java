@@ -0,0 +1,53 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.models.Product;
+import com.project.assignment.models.ProductImage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/* Bản chụp bất biến của một product cùng tên category và url ảnh, an toàn để dùng chung giữa các request
+   thay vì giữ entity đang được quản lý bởi Hibernate trong cache */
+@Getter
+@AllArgsConstructor
+public final class ProductSnapshot {
+    private final Integer id;
+    private final String name;
+    private final Float price;
+    private final String description;
+    private final LocalDate createDate;
+    private final LocalDate updateDate;
+    private final Integer categoryId;
+    private final String categoryName;
+    private final Long version;
+    //Bản 800px cho ảnh chính và bản 150px cho tab ảnh, chưa có bản thu nhỏ thì là ảnh gốc
+    private final List<String> imageUrls;
+    private final List<String> thumbnailUrls;
+
+    public static ProductSnapshot of(Product product) {
+        List<ProductImage> images = product.getProductImages() == null ? List.of() : product.getProductImages();
+        List<String> imageUrls = images
+                .stream()
+                .map(image -> image.urlFor(ProductImage.DETAIL_WIDTH))
+                .toList();
+        List<String> thumbnailUrls = images
+                .stream()
+                .map(image -> image.urlFor(ProductImage.THUMBNAIL_WIDTH))
+                .toList();
+        return new ProductSnapshot(
+                product.getId(),
+                product.getName(),
+                product.getPrice(),
+                product.getDescription(),
+                product.getCreateDate(),
+                product.getUpdateDate(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null,
+                product.getVersion(),
+                imageUrls,
+                thumbnailUrls
+        );
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.models.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/* Một trang keyset: danh sách sản phẩm và token để đi tới/lui, null khi không còn trang */
+@Getter
+@AllArgsConstructor
+public class ProductWindow {
+    private final List<Product> products;
+    private final String nextCursor;
+    private final String prevCursor;
+}
@@ -0,0 +1,260 @@
+package com.project.assignment.services.product_image;
+
+import com.project.assignment.models.ProductImage;
+import com.project.assignment.repositories.ProductImageRepository;
+import com.project.assignment.repositories.ProductRepository;
+import com.project.assignment.services.product.ProductChangedEvent;
+import com.project.assignment.utilities.FileUploader;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/* Tạo bản thu nhỏ JPEG (150/400/800px) cho ảnh sản phẩm bằng ImageIO của JDK, trên một pool thread cố định với hàng đợi có giới hạn.
+   Ảnh được đưa vào hàng đợi sau khi transaction lưu ảnh commit. Hàng đợi đầy, lỗi đọc file hoặc ảnh có từ trước
+   (variant_widths = NULL) thì job định kỳ tạo bù. Trong lúc chờ, ProductImage.urlFor trả về ảnh gốc */
+@Service
+public class ImageVariantService {
+    static final String FOLDER = "product_images";
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+    private static final float JPEG_QUALITY = 0.82f;
+    //Số pixel giải mã tối đa, bằng ảnh vuông gấp đôi bản lớn nhất
+    private static final long DECODE_PIXEL_BUDGET = 4L * ProductImage.DETAIL_WIDTH * ProductImage.DETAIL_WIDTH;
+
+    private final ProductImageRepository productImageRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final long maxPixels;
+    //Ảnh đang chờ hoặc đang xử lý, job tạo bù không đưa vào lần nữa
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(ProductImageRepository productImageRepository,
+                               ProductRepository productRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${image.variants.threads:2}") int threads,
+                               @Value("${image.variants.queue-capacity:200}") int queueCapacity,
+                               @Value("${image.variants.max-pixels:100000000}") long maxPixels) {
+        this.productImageRepository = productImageRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxPixels = maxPixels;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageStored(ProductImageStoredEvent event) {
+        submit(event.getImageId(), event.getProductId(), event.getUrl());
+    }
+
+    //Chỉ lấy đủ số ảnh mà hàng đợi còn chỗ
+    @Scheduled(fixedDelayString = "${image.variants.backfill-interval-ms:60000}")
+    public void backfill() {
+        int capacity = executor.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        try {
+            for (ProductImageRepository.VariantSource source : productImageRepository.findVariantSources(PageRequest.of(0, capacity))) {
+                if (!submit(source.getId(), source.getProductId(), source.getUrl())) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not load images without variants", e);
+        }
+    }
+
+    private boolean submit(Integer imageId, Integer productId, String url) {
+        if (url == null || !inFlight.add(imageId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(imageId, productId, url);
+                } finally {
+                    inFlight.remove(imageId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            //Job tạo bù sẽ lấy lại ảnh này
+            inFlight.remove(imageId);
+            return false;
+        }
+    }
+
+    private void generate(Integer imageId, Integer productId, String url) {
+        List<Integer> widths;
+        try {
+            Path original = FileUploader.resolve(url, FOLDER);
+            widths = original != null && Files.exists(original) ? writeVariants(original, url) : List.of();
+        } catch (IIOException | RuntimeException e) {
+            //File không giải mã được, ghi rỗng để không thử lại mãi
+            logger.warn("Could not decode image {} ({})", imageId, url, e);
+            widths = List.of();
+        } catch (IOException e) {
+            //Lỗi đọc/ghi đĩa, để NULL cho job tạo bù thử lại
+            logger.warn("Could not write variants of image {}", imageId, e);
+            return;
+        }
+        String variantWidths = widths.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (productImageRepository.updateVariantWidths(imageId, url, variantWidths) > 0) {
+                    //Url ảnh nằm trong product response và cache nên tăng version như khi đổi ảnh
+                    productRepository.incrementVersion(productId);
+                    eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.UPDATED));
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not save variants of image {}", imageId, e);
+        }
+    }
+
+    /* Chỉ tạo các chiều rộng nhỏ hơn ảnh gốc. Bản thu nhỏ có tên theo hash của ảnh gốc nên ảnh trùng nội dung
+       dùng lại file đã có mà không giải mã lại. Ảnh quá max-pixels bị từ chối (coi như không giải mã được) */
+    private List<Integer> writeVariants(Path original, String url) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return List.of();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                long sourcePixels = (long) sourceWidth * reader.getHeight(0);
+                if (sourcePixels > maxPixels) {
+                    throw new IIOException("Image has " + sourcePixels + " pixels, maximum is " + maxPixels);
+                }
+                List<Integer> widths = new ArrayList<>();
+                List<Path> targets = new ArrayList<>();
+                boolean missing = false;
+                for (int width : ProductImage.VARIANT_WIDTHS) {
+                    Path target = FileUploader.resolve(ProductImage.variantUrl(url, width), FOLDER);
+                    if (width < sourceWidth && target != null) {
+                        widths.add(width);
+                        targets.add(target);
+                        missing |= !Files.exists(target);
+                    }
+                }
+                if (!missing) {
+                    return widths;
+                }
+                /* Ảnh rất lớn thì bỏ bớt pixel ngay lúc giải mã. Theo chiều rộng vẫn giữ ít nhất gấp đôi bản lớn nhất,
+                   theo tổng số pixel để ảnh hẹp mà rất dài cũng không giải mã quá DECODE_PIXEL_BUDGET */
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(sourceWidth / (2 * ProductImage.DETAIL_WIDTH),
+                        (int) Math.ceil(Math.sqrt((double) sourcePixels / DECODE_PIXEL_BUDGET)));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                //Từ bản lớn xuống bản nhỏ, mỗi bản thu nhỏ từ bản trước nó
+                for (int i = widths.size() - 1; i >= 0; i--) {
+                    image = scale(image, widths.get(i));
+                    writeJpeg(image, targets.get(i));
+                }
+                return widths;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    //Giảm một nửa mỗi bước để nội suy bilinear không bị răng cưa, nền trắng cho ảnh có alpha vì JPEG không có alpha
+    private static BufferedImage scale(BufferedImage image, int width) {
+        BufferedImage current = image;
+        do {
+            int nextWidth = Math.max(width, current.getWidth() / 2);
+            int nextHeight = Math.max(1, Math.round((float) current.getHeight() * nextWidth / current.getWidth()));
+            BufferedImage scaled = new BufferedImage(nextWidth, nextHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, nextWidth, nextHeight);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+        } while (current.getWidth() > width);
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), FileUploader.TEMP_PREFIX, ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    //Việc còn trong hàng đợi bị bỏ, job tạo bù làm lại sau khi khởi động
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
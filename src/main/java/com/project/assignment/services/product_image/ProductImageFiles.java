@@ -0,0 +1,19 @@
+package com.project.assignment.services.product_image;
+
+import com.project.assignment.services.upload.UploadWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/* Giữ số đếm tham chiếu của FileUploader khớp với bảng product_img: mỗi dòng bị xoá hoặc đổi url bỏ một tham chiếu,
+   file về 0 thì bị xoá cùng các bản thu nhỏ. Chỉ chạy sau commit, rollback thì file vẫn còn nguyên */
+@Component
+@RequiredArgsConstructor
+public class ProductImageFiles {
+    private final UploadWriter uploadWriter;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageRemoved(ProductImageRemovedEvent event) {
+        uploadWriter.releaseAll(event.getUrls(), ImageVariantService.FOLDER);
+    }
+}
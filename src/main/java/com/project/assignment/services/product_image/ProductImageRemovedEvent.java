@@ -0,0 +1,13 @@
+package com.project.assignment.services.product_image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/* Được publish khi ảnh sản phẩm bị xoá hoặc bị thay file, để bỏ tham chiếu tới các file cũ sau khi transaction commit */
+@Getter
+@AllArgsConstructor
+public class ProductImageRemovedEvent {
+    private final List<String> urls;
+}
@@ -8,8 +8,11 @@ import com.project.assignment.repositories.ProductRepository;
 import com.project.assignment.responses.ProductImageResponse;
 import com.project.assignment.responses.ProductResponse;
 import com.project.assignment.services.ProductImageService;
+import com.project.assignment.services.product.ProductChangedEvent;
 import com.project.assignment.systems.NotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -19,8 +22,10 @@ import java.util.List;
 public class ProductImageRestService implements IProductImage {
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional
     public ProductImage createProductImage(int productId, ProductImageDTO productImageDTO) throws NotFoundException {
         Product product = productRepository.findById(productId).orElseThrow(() -> new NotFoundException("Product not found"));
         ProductImage productImage = ProductImage
@@ -32,7 +37,37 @@ public class ProductImageRestService implements IProductImage {
         if (size >= ProductImage.MAXIMUM_IMAGE_PER_PRODUCT) {
             throw new RuntimeException("Maximum image per product exceeded");
         }
-        return productImageRepository.save(productImage);
+        ProductImage savedImage = productImageRepository.save(productImage);
+        imageChanged(productId);
+        imageStored(savedImage);
+        return savedImage;
+    }
+
+    /* Lưu ảnh của một lần upload nhiều file: insert một lần (hibernate gom thành batch) và tăng version của sản phẩm một lần cho cả nhóm.
+       Version được tăng trước khi đếm: câu UPDATE khoá dòng product tới khi commit, các lần upload đồng thời cho cùng sản phẩm
+       phải chờ nhau nên số ảnh được kiểm tra lại ở đây là chính xác (lần kiểm tra trước khi ghi file chỉ để từ chối sớm) */
+    @Transactional
+    public List<ProductImage> createProductImages(int productId, List<String> urls) {
+        if (productRepository.incrementVersion(productId) == 0) {
+            throw new RuntimeException("Product not found");
+        }
+        long size = productRepository.countImagesById(productId).orElse(0L);
+        if (size + urls.size() > ProductImage.MAXIMUM_IMAGE_PER_PRODUCT) {
+            throw new RuntimeException("Maximum image per product exceeded");
+        }
+        Product product = productRepository.getReferenceById(productId);
+        List<ProductImage> productImages = urls
+                .stream()
+                .map(url -> ProductImage
+                        .builder()
+                        .product(product)
+                        .url(url)
+                        .build())
+                .toList();
+        List<ProductImage> savedImages = productImageRepository.saveAll(productImages);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.UPDATED));
+        savedImages.forEach(this::imageStored);
+        return savedImages;
     }
 
     @Override
@@ -61,15 +96,44 @@ public class ProductImageRestService implements IProductImage {
     }
 
     @Override
+    @Transactional
     public ProductImageResponse updateProductImage(int id, String fileName) throws NotFoundException {
         ProductImage productImage = productImageRepository.findById(id).orElseThrow(() -> new NotFoundException("ProductImage not found"));
+        String previousUrl = productImage.getUrl();
         productImage.setUrl(fileName);
+        productImage.setVariantWidths(null);
         productImageRepository.save(productImage);
+        imageChanged(productImage.getProduct().getId());
+        imageStored(productImage);
+        imageRemoved(previousUrl);
         return ProductImageResponse.of(productImage);
     }
 
     @Override
+    @Transactional
     public void deleteProductImageById(int id) {
-        productImageRepository.deleteById(id);
+        productImageRepository.findById(id).ifPresent(productImage -> {
+            productImageRepository.delete(productImage);
+            imageChanged(productImage.getProduct().getId());
+            imageRemoved(productImage.getUrl());
+        });
+    }
+
+    //Ảnh là một phần của product response nên tăng version của product và báo cho các cache
+    private void imageChanged(Integer productId) {
+        productRepository.incrementVersion(productId);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Action.UPDATED));
+    }
+
+    //Bản thu nhỏ được tạo sau khi commit, trong lúc chờ trang vẫn dùng ảnh gốc
+    private void imageStored(ProductImage productImage) {
+        eventPublisher.publishEvent(new ProductImageStoredEvent(productImage.getId(), productImage.getProduct().getId(), productImage.getUrl()));
+    }
+
+    //File cũ chỉ bị xoá sau commit, khi không còn ảnh nào khác dùng
+    private void imageRemoved(String url) {
+        if (url != null) {
+            eventPublisher.publishEvent(new ProductImageRemovedEvent(List.of(url)));
+        }
     }
 }
@@ -0,0 +1,13 @@
+package com.project.assignment.services.product_image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* Được publish khi một ảnh sản phẩm được tạo hoặc đổi file, để tạo bản thu nhỏ sau khi transaction commit */
+@Getter
+@AllArgsConstructor
+public class ProductImageStoredEvent {
+    private final Integer imageId;
+    private final Integer productId;
+    private final String url;
+}
@@ -0,0 +1,49 @@
+package com.project.assignment.services.sales;
+
+import com.project.assignment.models.Order;
+import com.project.assignment.models.OrderDetail;
+import com.project.assignment.models.Product;
+import com.project.assignment.utilities.Money;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+/* Được publish khi OrderService tạo đơn, listener nhận sau khi transaction commit.
+   Chỉ giữ id và số đã tính sẵn để listener không phải đụng tới entity */
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+    private final Integer orderId;
+    private final LocalDate orderDate;
+    private final List<Line> lines;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Line {
+        private final int productId;
+        //0 nếu product không có category
+        private final int categoryId;
+        private final int qty;
+        private final long revenueCents;
+    }
+
+    public static OrderPlacedEvent of(Order order) {
+        List<Line> lines = order.getOrderDetails()
+                .stream()
+                .map(OrderPlacedEvent::line)
+                .toList();
+        LocalDate orderDate = order.getOrderDate() instanceof java.sql.Date date
+                ? date.toLocalDate()
+                : LocalDate.ofInstant(order.getOrderDate().toInstant(), ZoneId.systemDefault());
+        return new OrderPlacedEvent(order.getId(), orderDate, lines);
+    }
+
+    private static Line line(OrderDetail detail) {
+        Product product = detail.getProduct();
+        int categoryId = product.getCategory() != null ? product.getCategory().getId() : 0;
+        return new Line(product.getId(), categoryId, detail.getQty(), Money.toCents(detail.getPrice()) * detail.getQty());
+    }
+}
@@ -0,0 +1,99 @@
+package com.project.assignment.services.sales;
+
+import com.project.assignment.models.SalesRollup;
+import com.project.assignment.repositories.SalesRollupRepository;
+import com.project.assignment.responses.SalesReportResponse;
+import com.project.assignment.responses.SalesRowResponse;
+import com.project.assignment.services.ProductService;
+import com.project.assignment.services.category.CategoryCatalog;
+import com.project.assignment.services.category.CategorySnapshot;
+import com.project.assignment.systems.ObjectNotFoundException;
+import com.project.assignment.utilities.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+
+/* Báo cáo cho dashboard, chỉ đọc sales_rollups: số dòng đọc phụ thuộc số ngày và số category/product, không phụ thuộc số đơn.
+   Tên category lấy từ snapshot trong bộ nhớ, tên product từ cache snapshot */
+@Service
+@RequiredArgsConstructor
+public class SalesReportService {
+    public static final int DEFAULT_DAYS = 30;
+    private static final int MAX_CATEGORIES = 100;
+    private static final int TOP_PRODUCTS = 10;
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final CategoryCatalog categoryCatalog;
+    private final ProductService productService;
+
+    public SalesReportResponse getReport(LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+
+        List<SalesRowResponse> days = salesRollupRepository.findByDimension(SalesRollup.DAY, start, end)
+                .stream()
+                .map(rollup -> row(rollup.getSalesDate().toString(), null,
+                        rollup.getOrderCount(), rollup.getItemCount(), rollup.getRevenueCents()))
+                .toList();
+
+        CategorySnapshot categories = categoryCatalog.snapshot();
+        List<SalesRowResponse> categoryRows = totals(SalesRollup.CATEGORY, start, end, MAX_CATEGORIES, categories::nameOf);
+        List<SalesRowResponse> productRows = totals(SalesRollup.PRODUCT, start, end, TOP_PRODUCTS, this::productName);
+
+        long orderCount = 0;
+        long itemCount = 0;
+        BigDecimal revenue = BigDecimal.ZERO.setScale(2);
+        for (SalesRowResponse day : days) {
+            orderCount += day.getOrderCount();
+            itemCount += day.getItemCount();
+            revenue = revenue.add(day.getRevenue());
+        }
+        return SalesReportResponse
+                .builder()
+                .from(start)
+                .to(end)
+                .orderCount(orderCount)
+                .itemCount(itemCount)
+                .revenue(revenue)
+                .days(days)
+                .categories(categoryRows)
+                .topProducts(productRows)
+                .build();
+    }
+
+    private List<SalesRowResponse> totals(String dimension, LocalDate start, LocalDate end, int limit,
+                                          Function<Integer, String> names) {
+        return salesRollupRepository.sumByDimension(dimension, start, end, PageRequest.of(0, limit))
+                .stream()
+                .map(total -> row(String.valueOf(total.getDimId()), names.apply(total.getDimId()),
+                        total.getOrderCount(), total.getItemCount(), total.getRevenueCents()))
+                .toList();
+    }
+
+    private String productName(Integer productId) {
+        try {
+            return productService.findSnapshot(productId).getName();
+        } catch (ObjectNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static SalesRowResponse row(String key, String name, long orderCount, long itemCount, long revenueCents) {
+        return SalesRowResponse
+                .builder()
+                .key(key)
+                .name(name)
+                .orderCount(orderCount)
+                .itemCount(itemCount)
+                .revenue(Money.fromCents(revenueCents))
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.project.assignment.services.sales;
+
+import com.project.assignment.models.SalesRollup;
+import com.project.assignment.repositories.SalesRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Cộng dồn doanh thu theo ngày, category và product mỗi khi một đơn commit, giữ trong bộ nhớ
+   và định kỳ MERGE phần chênh lệch vào sales_rollups. Dashboard chỉ đọc bảng rollup.
+   Phần chưa flush bị mất nếu process chết, khi đó dùng rebuild() để tính lại từ orders */
+@Service
+public class SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    //Listener giữ read lock khi cộng, flush/rebuild giữ write lock trong lúc đổi map nên không mất delta nào
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //Giữ từ lúc lấy delta ra tới khi ghi xong, rebuild chờ lần flush đang chạy để không cộng lại những đơn đã nằm trong orders
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile Map<Key, Delta> pending = new ConcurrentHashMap<>();
+
+    public SalesRollupService(SalesRollupRepository salesRollupRepository, PlatformTransactionManager transactionManager) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        lock.readLock().lock();
+        try {
+            LocalDate date = event.getOrderDate();
+            long items = 0;
+            long revenue = 0;
+            //Một đơn chỉ tính một lần cho mỗi category/product dù có nhiều dòng
+            Set<Integer> categories = new HashSet<>();
+            Set<Integer> products = new HashSet<>();
+            for (OrderPlacedEvent.Line line : event.getLines()) {
+                items += line.getQty();
+                revenue += line.getRevenueCents();
+                delta(SalesRollup.CATEGORY, line.getCategoryId(), date)
+                        .add(categories.add(line.getCategoryId()) ? 1 : 0, line.getQty(), line.getRevenueCents());
+                delta(SalesRollup.PRODUCT, line.getProductId(), date)
+                        .add(products.add(line.getProductId()) ? 1 : 0, line.getQty(), line.getRevenueCents());
+            }
+            delta(SalesRollup.DAY, 0, date).add(1, items, revenue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Delta delta(String dimension, int dimId, LocalDate date) {
+        return pending.computeIfAbsent(new Key(dimension, dimId, date), key -> new Delta());
+    }
+
+    @Scheduled(fixedDelayString = "${sales.rollup.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            write(swap());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<Key, Delta> drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> drained.forEach((key, delta) ->
+                    salesRollupRepository.merge(key.dimension, key.dimId, key.date,
+                            delta.orders.get(), delta.items.get(), delta.revenueCents.get())));
+        } catch (RuntimeException e) {
+            //Trả delta về lại để lần sau ghi tiếp
+            lock.readLock().lock();
+            try {
+                drained.forEach((key, delta) -> pending.computeIfAbsent(key, k -> new Delta())
+                        .add(delta.orders.get(), delta.items.get(), delta.revenueCents.get()));
+            } finally {
+                lock.readLock().unlock();
+            }
+            logger.warn("Could not flush {} sales rollups", drained.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /* Xoá rollup và tính lại từ toàn bộ đơn hàng trong một transaction, delta chưa flush được bỏ vì đã nằm trong orders.
+       Đơn commit đúng lúc đang rebuild có thể bị tính hai lần, nên chạy lúc ít đơn */
+    public int rebuild() {
+        flushLock.lock();
+        lock.writeLock().lock();
+        try {
+            pending = new ConcurrentHashMap<>();
+            Integer rows = transactionTemplate.execute(status -> {
+                salesRollupRepository.deleteAllRollups();
+                return salesRollupRepository.rebuildDays()
+                        + salesRollupRepository.rebuildCategories()
+                        + salesRollupRepository.rebuildProducts();
+            });
+            logger.info("Rebuilt {} sales rollup rows", rows);
+            return rows == null ? 0 : rows;
+        } finally {
+            lock.writeLock().unlock();
+            flushLock.unlock();
+        }
+    }
+
+    private Map<Key, Delta> swap() {
+        lock.writeLock().lock();
+        try {
+            Map<Key, Delta> drained = pending;
+            if (!drained.isEmpty()) {
+                pending = new ConcurrentHashMap<>();
+            }
+            return drained;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Key {
+        private final String dimension;
+        private final int dimId;
+        private final LocalDate date;
+
+        Key(String dimension, int dimId, LocalDate date) {
+            this.dimension = dimension;
+            this.dimId = dimId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return dimId == key.dimId && dimension.equals(key.dimension) && date.equals(key.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, dimId, date);
+        }
+    }
+
+    private static final class Delta {
+        private final AtomicLong orders = new AtomicLong();
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong revenueCents = new AtomicLong();
+
+        void add(long orderCount, long itemCount, long cents) {
+            orders.addAndGet(orderCount);
+            items.addAndGet(itemCount);
+            revenueCents.addAndGet(cents);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.project.assignment.services.upload;
+
+import com.project.assignment.repositories.ProductImageRepository;
+import com.project.assignment.utilities.FileUploader;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/* Dọn file trong uploads/product_images không còn dòng product_img nào trỏ tới (ảnh bị xoá, bị thay, sản phẩm bị xoá).
+   Duyệt cây thư mục và kiểm tra từng nhóm batch-size file bằng một câu IN, nên bộ nhớ không tăng theo số file.
+   Chỉ xoá file có tên do ứng dụng sinh ra (theo hash nội dung hoặc UUID_ của bản cũ, kèm bản thu nhỏ, file đếm, file tạm),
+   file khác đặt trong thư mục (ảnh mặc định default_image.jpg...) không bị đụng tới.
+   Chỉ xoá file cũ hơn grace-period-ms, số file đọc mỗi giây bị giới hạn để không tranh I/O với request.
+   Chạy trên thread riêng vì scheduler mặc định chỉ có một thread, dùng chung với các job flush */
+@Component
+public class UploadSweeper {
+    static final String FOLDER = "product_images";
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSweeper.class);
+    //Bản thu nhỏ do ImageVariantService tạo: <tên gốc không đuôi>_w<width>.jpg
+    private static final Pattern VARIANT = Pattern.compile("(.+)_w\\d+\\.jpg");
+    //ab/cd/<sha256>.<ext> của FileUploader, và <UUID>_<tên gốc> nằm thẳng trong folder của bản upload cũ
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{2})/([0-9a-f]{2})/\\1\\2[0-9a-f]{60}(?:_w\\d+)?\\.[a-z0-9]{1,8}");
+    private static final Pattern LEGACY = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_[^/]+");
+
+    private final ProductImageRepository productImageRepository;
+    private final UploadedFiles uploadedFiles;
+    private final long gracePeriodMillis;
+    private final int batchSize;
+    private final long nanosPerFile;
+    //Một thread, lần quét trước chưa xong thì lần này bị bỏ
+    private final ThreadPoolExecutor executor;
+
+    public UploadSweeper(ProductImageRepository productImageRepository,
+                         UploadedFiles uploadedFiles,
+                         @Value("${uploads.sweeper.grace-period-ms:86400000}") long gracePeriodMillis,
+                         @Value("${uploads.sweeper.batch-size:500}") int batchSize,
+                         @Value("${uploads.sweeper.max-files-per-second:200}") int maxFilesPerSecond) {
+        this.productImageRepository = productImageRepository;
+        this.uploadedFiles = uploadedFiles;
+        this.gracePeriodMillis = Math.max(0, gracePeriodMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.nanosPerFile = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxFilesPerSecond);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-sweeper");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    //Lần đầu chạy sau một chu kỳ, không quét lúc khởi động
+    @Scheduled(fixedDelayString = "${uploads.sweeper.interval-ms:21600000}", initialDelayString = "${uploads.sweeper.interval-ms:21600000}")
+    public void schedule() {
+        try {
+            executor.execute(() -> {
+                try {
+                    sweep();
+                } catch (RuntimeException e) {
+                    logger.warn("Upload sweep failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.info("Previous upload sweep is still running, skipped");
+        }
+    }
+
+    public SweepResult sweep() {
+        Path root = FileUploader.folderPath(FOLDER).toAbsolutePath().normalize();
+        SweepResult result = new SweepResult(0, 0, 0);
+        //Bảng ảnh rỗng thường là trỏ nhầm database, không xoá hết file vì chuyện đó
+        if (!Files.isDirectory(root) || productImageRepository.count() == 0) {
+            return result;
+        }
+        long started = System.currentTimeMillis();
+        Sweep sweep = new Sweep(root, started - gracePeriodMillis, result);
+        try {
+            Files.walkFileTree(root, sweep);
+            sweep.flush();
+        } catch (IOException e) {
+            logger.warn("Could not scan {}", root, e);
+        }
+        logger.info("Upload sweep scanned {} files, deleted {}, reclaimed {} bytes in {} ms",
+                result.scanned, result.deleted, result.reclaimedBytes, System.currentTimeMillis() - started);
+        return result;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    //url trong folder (với file đếm là url của file mà nó đếm) do FileUploader hoặc ImageVariantService sinh ra
+    static boolean generatedName(String url) {
+        if (url.endsWith(FileUploader.REF_SUFFIX)) {
+            url = url.substring(0, url.length() - FileUploader.REF_SUFFIX.length());
+        }
+        return CONTENT_ADDRESSED.matcher(url).matches() || LEGACY.matcher(url).matches();
+    }
+
+    //Bản thu nhỏ thì trả về tiền tố tên của ảnh gốc (gồm dấu chấm), không phải thì trả về null
+    static String variantOriginalPrefix(String name) {
+        Matcher variant = VARIANT.matcher(name);
+        return variant.matches() ? variant.group(1) + "." : null;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class SweepResult {
+        private long scanned;
+        private long deleted;
+        private long reclaimedBytes;
+    }
+
+    private final class Sweep extends SimpleFileVisitor<Path> {
+        private final Path root;
+        private final long cutoffMillis;
+        private final SweepResult result;
+        //Url (đường dẫn tương đối trong folder) của các file chờ kiểm tra với database
+        private final List<String> pending = new ArrayList<>();
+        private long nextSlot = System.nanoTime();
+
+        private Sweep(Path root, long cutoffMillis, SweepResult result) {
+            this.root = root;
+            this.cutoffMillis = cutoffMillis;
+            this.result = result;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+            throttle();
+            result.scanned++;
+            if (!attributes.isRegularFile() || attributes.lastModifiedTime().toMillis() > cutoffMillis) {
+                return FileVisitResult.CONTINUE;
+            }
+            String name = file.getFileName().toString();
+            if (name.endsWith(".tmp")) {
+                //File tạm bị bỏ lại khi ghi dở (tắt máy, lỗi), quá grace period thì chắc chắn không còn ai ghi
+                String refFile = name.substring(0, name.length() - ".tmp".length());
+                if (name.startsWith(FileUploader.TEMP_PREFIX)
+                        || (refFile.endsWith(FileUploader.REF_SUFFIX) && generated(file.resolveSibling(refFile)))) {
+                    deleted(null, deleteQuietly(file));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+            if (name.endsWith(FileUploader.REF_SUFFIX)) {
+                //File đếm được xoá cùng file của nó, chỉ xét ở đây khi file đó đã mất
+                Path original = file.resolveSibling(name.substring(0, name.length() - FileUploader.REF_SUFFIX.length()));
+                if (Files.exists(original)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                file = original;
+            }
+            if (!generated(file)) {
+                return FileVisitResult.CONTINUE;
+            }
+            pending.add(relative(file));
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private String relative(Path file) {
+            return root.relativize(file).toString().replace('\\', '/');
+        }
+
+        private boolean generated(Path file) {
+            return generatedName(relative(file));
+        }
+
+        //File bị xoá trong lúc đang duyệt (bản thu nhỏ đã xoá cùng ảnh gốc)
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            if (!(e instanceof NoSuchFileException)) {
+                logger.warn("Could not read {}", file, e);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void flush() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Set<String> used = new HashSet<>(productImageRepository.findUrlsIn(pending));
+            for (String url : pending) {
+                if (used.contains(url) || hasOriginal(url)) {
+                    continue;
+                }
+                long bytes = FileUploader.purge(url, FOLDER, cutoffMillis);
+                if (bytes >= 0) {
+                    deleted(url, bytes);
+                }
+            }
+            pending.clear();
+        }
+
+        //Bản thu nhỏ được giữ khi ảnh gốc còn, và bị xoá cùng ảnh gốc khi ảnh gốc không còn được dùng
+        private boolean hasOriginal(String url) throws IOException {
+            Path file = root.resolve(url);
+            String prefix = variantOriginalPrefix(file.getFileName().toString());
+            if (prefix == null) {
+                return false;
+            }
+            try (DirectoryStream<Path> originals = Files.newDirectoryStream(file.getParent(), path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && !name.endsWith(FileUploader.REF_SUFFIX) && !name.endsWith(".tmp");
+            })) {
+                return originals.iterator().hasNext();
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        private void deleted(String url, long bytes) {
+            result.deleted++;
+            result.reclaimedBytes += bytes;
+            if (url != null) {
+                uploadedFiles.evict(FOLDER + "/" + url);
+            }
+        }
+
+        //Giãn đều việc đọc file theo max-files-per-second
+        private void throttle() {
+            long now = System.nanoTime();
+            if (nextSlot > now) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(nextSlot - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Upload sweep interrupted", e);
+                }
+            }
+            nextSlot = Math.max(nextSlot, now) + nanosPerFile;
+        }
+    }
+
+    private static long deleteQuietly(Path file) {
+        try {
+            long size = Files.size(file);
+            return Files.deleteIfExists(file) ? size : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
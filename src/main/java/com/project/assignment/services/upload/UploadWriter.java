@@ -0,0 +1,95 @@
+package com.project.assignment.services.upload;
+
+import com.project.assignment.utilities.FileUploader;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Ghi nhiều file của một lần upload song song bằng FileUploader. Pool thread có giới hạn dùng chung cho mọi request,
+   hàng đợi đầy thì thread của request tự ghi file đó nên không có file nào bị từ chối.
+   Một file lỗi thì các file đã ghi được release lại trước khi báo lỗi */
+@Component
+public class UploadWriter {
+    private static final Logger logger = LoggerFactory.getLogger(UploadWriter.class);
+
+    private final ThreadPoolExecutor executor;
+
+    public UploadWriter(@Value("${uploads.writer-threads:4}") int threads,
+                        @Value("${uploads.writer-queue-capacity:100}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-writer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    //Trả về tên file theo đúng thứ tự của files
+    public List<String> storeAll(List<MultipartFile> files, String folder) throws IOException {
+        if (files.size() == 1) {
+            return List.of(FileUploader.storeFile(files.get(0), folder));
+        }
+        List<CompletableFuture<String>> futures = files
+                .stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> store(file, folder), executor))
+                .toList();
+        List<String> fileNames = new ArrayList<>(files.size());
+        IOException failure = null;
+        //Chờ hết các file kể cả khi có file lỗi, để không còn file nào đang ghi dở khi release
+        for (CompletableFuture<String> future : futures) {
+            try {
+                fileNames.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof UncheckedIOException io ? io.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            releaseAll(fileNames, folder);
+            throw failure;
+        }
+        return fileNames;
+    }
+
+    //Bỏ tham chiếu của các file đã ghi khi bước lưu database không thành công
+    public void releaseAll(List<String> fileNames, String folder) {
+        for (String fileName : fileNames) {
+            try {
+                FileUploader.release(fileName, folder);
+            } catch (IOException e) {
+                logger.warn("Could not release uploaded file {}", fileName, e);
+            }
+        }
+    }
+
+    private static String store(MultipartFile file, String folder) {
+        try {
+            return FileUploader.storeFile(file, folder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+}
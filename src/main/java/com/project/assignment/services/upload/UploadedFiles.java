@@ -0,0 +1,118 @@
+package com.project.assignment.services.upload;
+
+import com.project.assignment.utilities.ETags;
+import com.project.assignment.utilities.FileUploader;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/* Tra file trong thư mục uploads cho endpoint phục vụ ảnh. Metadata (kích thước, thời gian sửa, ETag, content type)
+   của các file hay được đọc nằm trong một LRU nhỏ để request lặp lại không phải stat file.
+   Mỗi entry chỉ dùng trong metadata-ttl-ms, nên file đã bị xoá sẽ sớm trả 404 */
+@Component
+public class UploadedFiles {
+    //Tên do FileUploader sinh ra (hash nội dung, có thể kèm _w<width> của bản thu nhỏ), nội dung không bao giờ đổi
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64}(?:_w\\d+)?)\\.[a-z0-9]{1,8}");
+
+    private final Path root = Paths.get(FileUploader.UPLOAD_ROOT).toAbsolutePath().normalize();
+    private final long ttlMillis;
+    private final Map<String, UploadedFile> metadata;
+
+    public UploadedFiles(@Value("${uploads.metadata-cache-size:1024}") int cacheSize,
+                         @Value("${uploads.metadata-ttl-ms:60000}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        int maxEntries = Math.max(1, cacheSize);
+        this.metadata = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UploadedFile> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    //null nếu không có file hoặc file không được phục vụ ra ngoài (file đếm tham chiếu, file tạm, file ẩn)
+    public UploadedFile find(String relativePath) {
+        long now = System.currentTimeMillis();
+        UploadedFile cached = metadata.get(relativePath);
+        if (cached != null && now - cached.loadedAt < ttlMillis) {
+            return cached;
+        }
+        Path file = resolve(relativePath);
+        if (file == null) {
+            return null;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            metadata.remove(relativePath);
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        String name = file.getFileName().toString();
+        Matcher contentAddressed = CONTENT_ADDRESSED.matcher(name);
+        boolean immutable = contentAddressed.matches();
+        //Header HTTP chỉ chính xác tới giây
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        UploadedFile uploadedFile = new UploadedFile(
+                file,
+                attributes.size(),
+                lastModified,
+                immutable ? ETags.strong(contentAddressed.group(1)) : ETags.strong(attributes.size(), lastModified),
+                MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString(),
+                immutable,
+                now
+        );
+        metadata.put(relativePath, uploadedFile);
+        return uploadedFile;
+    }
+
+    public void evict(String relativePath) {
+        metadata.remove(relativePath);
+    }
+
+    private Path resolve(String relativePath) {
+        if (relativePath == null || relativePath.isBlank()) {
+            return null;
+        }
+        Path file = root.resolve(StringUtils.cleanPath(relativePath)).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            return null;
+        }
+        String name = file.getFileName().toString();
+        if (name.startsWith(".") || name.endsWith(FileUploader.REF_SUFFIX)
+                || (name.startsWith(FileUploader.TEMP_PREFIX) && name.endsWith(".tmp"))) {
+            return null;
+        }
+        return file;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class UploadedFile {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+        private final String etag;
+        private final String contentType;
+        private final boolean immutable;
+        private final long loadedAt;
+    }
+}
@@ -0,0 +1,12 @@
+package com.project.assignment.systems;
+
+//Hàng đợi đặt hàng đầy hoặc không ghi được journal, khách cần thử lại sau
+public class OrderRejectedException extends RuntimeException {
+    public OrderRejectedException(String message) {
+        super(message);
+    }
+
+    public OrderRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
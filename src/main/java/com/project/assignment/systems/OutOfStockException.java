@@ -0,0 +1,7 @@
+package com.project.assignment.systems;
+
+public class OutOfStockException extends RuntimeException {
+    public OutOfStockException(Integer productId) {
+        super("Product " + productId + " is out of stock");
+    }
+}
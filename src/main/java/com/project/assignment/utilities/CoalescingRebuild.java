@@ -0,0 +1,87 @@
+package com.project.assignment.utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/* Chạy một việc đọc lại toàn bộ từ database (build index, load tồn kho) trên thread riêng, không giữ thread gọi.
+   Tối đa một lần đang chạy và một lần chờ: lần chờ đọc lại tất cả nên các yêu cầu thêm trong lúc đó bị gộp vào.
+   Việc trả về false hoặc ném lỗi (database chưa sẵn sàng...) thì tự chạy lại sau backoff tăng gấp đôi tới maxBackoffMillis */
+public final class CoalescingRebuild {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingRebuild.class);
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+
+    private final String name;
+    private final BooleanSupplier task;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    //Chỉ đọc/ghi trên thread của executor
+    private long backoffMillis;
+
+    public CoalescingRebuild(String name, BooleanSupplier task) {
+        this(name, task, INITIAL_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS);
+    }
+
+    public CoalescingRebuild(String name, BooleanSupplier task, long initialBackoffMillis, long maxBackoffMillis) {
+        this.name = name;
+        this.task = task;
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.backoffMillis = this.initialBackoffMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public void request() {
+        if (queued.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                //Đang tắt ứng dụng
+                queued.set(false);
+            }
+        }
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void run() {
+        //Bỏ cờ trước khi chạy: yêu cầu đến trong lúc chạy được xếp thêm một lần, lần đó thấy cả thay đổi mới
+        queued.set(false);
+        boolean done;
+        try {
+            done = task.getAsBoolean();
+        } catch (RuntimeException e) {
+            logger.warn("{} failed", name, e);
+            done = false;
+        }
+        if (done) {
+            backoffMillis = initialBackoffMillis;
+            return;
+        }
+        long delay = backoffMillis;
+        backoffMillis = Math.min(maxBackoffMillis, backoffMillis * 2);
+        if (queued.compareAndSet(false, true)) {
+            logger.info("{} will be retried in {} ms", name, delay);
+            try {
+                executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                queued.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.assignment.utilities;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public final class ETags {
+    private ETags() {
+    }
+
+    //Strong ETag ghép từ các phần, ví dụ "product-12-3-0"
+    public static String strong(Object... parts) {
+        return Arrays.stream(parts)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-", "\"", "\""));
+    }
+}
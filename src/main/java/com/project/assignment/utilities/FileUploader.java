@@ -4,30 +4,217 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
+/* Lưu file theo nội dung: tên file là SHA-256 của nội dung, nằm trong thư mục con ab/cd/ lấy từ hash
+   để mỗi thư mục chỉ có ít file. Cùng một ảnh upload nhiều lần chỉ lưu một bản, file <tên>.ref bên cạnh
+   đếm số lần được lưu, release giảm và xoá file cùng các bản thu nhỏ (<tên>_w<width>.jpg) khi về 0.
+   File mà database không còn dùng nhưng số đếm chưa về 0 được UploadSweeper dọn bằng purge.
+   Tên file không đổi khi nội dung không đổi nên URL có thể cache vĩnh viễn.
+   File cũ (UUID_tên gốc) nằm thẳng trong thư mục folder vẫn đọc được bình thường */
 public class FileUploader {
+    public static final String UPLOAD_ROOT = "src/main/resources/static/uploads";
+    public static final String REF_SUFFIX = ".ref";
+    public static final String TEMP_PREFIX = "upload-";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,8}");
+    //Khoá theo hash, chỉ có tác dụng trong một JVM
+    private static final Object[] LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    //Trả về đường dẫn tương đối trong folder, dạng ab/cd/<sha256>.<ext>
     static public String storeFile(MultipartFile file, String folder) throws IOException {
-        String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-        //Thêm UUID vào trước tên file để đảm bảo tên file là duy nhất
-        String uniqueFileName = UUID.randomUUID().toString() + "_" + fileName;
-        //Đường dẫn đến thư mục luu file
-        Path uploadDir = Paths.get("src/main/resources/static/uploads/" + folder);
+        Path uploadDir = folderPath(folder);
+        Files.createDirectories(uploadDir);
+        //File tạm nằm cùng ổ đĩa với đích để move là atomic
+        Path temp = Files.createTempFile(uploadDir, TEMP_PREFIX, ".tmp");
+        try {
+            String hash = copyAndHash(file, temp);
+            String fileName = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extensionOf(file.getOriginalFilename());
+            Path destination = uploadDir.resolve(fileName);
+            synchronized (lockFor(hash)) {
+                if (!Files.exists(destination)) {
+                    Files.createDirectories(destination.getParent());
+                    Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE);
+                }
+                addReferences(destination, 1);
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
+    //Bỏ một tham chiếu, file không còn ai dùng thì bị xoá. Trả về true nếu file đã bị xoá
+    static public boolean release(String fileName, String folder) throws IOException {
+        Path file = resolve(fileName, folder);
+        if (file == null || !Files.exists(file)) {
+            return false;
+        }
+        synchronized (lockFor(hashOf(file))) {
+            if (addReferences(file, -1) > 0) {
+                return false;
+            }
+            Files.deleteIfExists(referencePath(file));
+            deleteVariants(file);
+            return Files.deleteIfExists(file);
         }
-        //Đường dẫn đầy đủ đến file
-        Path destination = Paths.get(uploadDir.toString(), uniqueFileName);
+    }
 
-        //Sao chép file vào thư mục đích
-        Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
+    /* Xoá file không còn dòng nào trong database trỏ tới, cùng file đếm và các bản thu nhỏ, bất kể số đếm.
+       Bỏ qua nếu file hoặc file đếm được ghi sau cutoff, vì storeFile ghi lại file đếm cả khi nội dung đã có sẵn
+       nên file vừa được upload lại chưa kịp lưu vào database vẫn được giữ. Trả về số byte đã xoá, -1 nếu bỏ qua */
+    static public long purge(String fileName, String folder, long cutoffMillis) throws IOException {
+        Path file = resolve(fileName, folder);
+        if (file == null) {
+            return -1;
+        }
+        synchronized (lockFor(hashOf(file))) {
+            Path refFile = referencePath(file);
+            if (modifiedAfter(file, cutoffMillis) || modifiedAfter(refFile, cutoffMillis)) {
+                return -1;
+            }
+            return deleteFile(refFile) + deleteVariants(file) + deleteFile(file);
+        }
+    }
+
+    static public Path folderPath(String folder) {
+        return Paths.get(UPLOAD_ROOT, folder);
+    }
+
+    //null nếu fileName trỏ ra ngoài folder
+    static public Path resolve(String fileName, String folder) {
+        if (fileName == null || fileName.isBlank()) {
+            return null;
+        }
+        Path root = folderPath(folder).toAbsolutePath().normalize();
+        Path file = root.resolve(StringUtils.cleanPath(fileName)).normalize();
+        return file.startsWith(root) && !file.equals(root) ? file : null;
+    }
 
-        return uniqueFileName;
+    //Đọc và ghi qua channel với một buffer cố định, hash được tính trong lúc ghi nên không đọc file hai lần
+    private static String copyAndHash(MultipartFile file, Path temp) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (InputStream inputStream = file.getInputStream();
+             ReadableByteChannel in = Channels.newChannel(inputStream);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.array(), 0, buffer.limit());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+            out.force(false);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static int addReferences(Path file, int delta) throws IOException {
+        Path refFile = referencePath(file);
+        int count = 0;
+        if (Files.exists(refFile)) {
+            try {
+                count = Integer.parseInt(Files.readString(refFile, StandardCharsets.US_ASCII).trim());
+            } catch (NumberFormatException e) {
+                //File đếm hỏng thì coi như còn một tham chiếu để không xoá nhầm
+                count = 1;
+            }
+        }
+        count = Math.max(0, count + delta);
+        Path temp = refFile.resolveSibling(refFile.getFileName() + ".tmp");
+        Files.writeString(temp, Integer.toString(count), StandardCharsets.US_ASCII);
+        Files.move(temp, refFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
     }
 
+    //Trả về tổng số byte đã xoá
+    private static long deleteVariants(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String prefix = (dot < 0 ? name : name.substring(0, dot)) + "_w";
+        long bytes = 0;
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(file.getParent(), path -> path.getFileName().toString().startsWith(prefix))) {
+            for (Path variant : variants) {
+                bytes += deleteFile(variant);
+            }
+        } catch (NoSuchFileException e) {
+            //Thư mục đã không còn thì cũng không còn bản thu nhỏ nào
+        }
+        return bytes;
+    }
+
+    private static long deleteFile(Path path) throws IOException {
+        try {
+            long size = Files.size(path);
+            Files.delete(path);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private static boolean modifiedAfter(Path path, long cutoffMillis) throws IOException {
+        try {
+            return Files.getLastModifiedTime(path).toMillis() > cutoffMillis;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static Path referencePath(Path file) {
+        return file.resolveSibling(file.getFileName() + REF_SUFFIX);
+    }
+
+    private static String extensionOf(String originalFilename) {
+        String extension = StringUtils.getFilenameExtension(StringUtils.cleanPath(originalFilename == null ? "" : originalFilename));
+        extension = extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+        if ("jpeg".equals(extension)) {
+            return "jpg";
+        }
+        return EXTENSION.matcher(extension).matches() ? extension : "bin";
+    }
+
+    private static Object lockFor(String hash) {
+        return LOCKS[Math.floorMod(hash.hashCode(), LOCKS.length)];
+    }
+
+    private static String hashOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
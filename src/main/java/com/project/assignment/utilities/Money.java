@@ -0,0 +1,25 @@
+package com.project.assignment.utilities;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+//Quy đổi giá Float trong entity sang đơn vị nhỏ nhất (cent) để cộng/nhân chính xác
+public final class Money {
+    private Money() {
+    }
+
+    public static long toCents(Float price) {
+        if (price == null) {
+            return 0;
+        }
+        //Float.toString cho dạng thập phân ngắn nhất, ví dụ 19.99 thay vì 19.9899997711...
+        return new BigDecimal(Float.toString(price))
+                .setScale(2, RoundingMode.HALF_UP)
+                .movePointRight(2)
+                .longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -0,0 +1,34 @@
+package com.project.assignment.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductRestControllerTests {
+
+    @Test
+    void gzipIsAcceptedWhenListedWithPositiveQuality() {
+        assertThat(ProductRestController.acceptsGzip("gzip")).isTrue();
+        assertThat(ProductRestController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(ProductRestController.acceptsGzip("br;q=1.0, x-gzip ; q=0.001")).isTrue();
+        assertThat(ProductRestController.acceptsGzip("*")).isTrue();
+    }
+
+    @Test
+    void gzipWithZeroQualityIsRefused() {
+        assertThat(ProductRestController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ProductRestController.acceptsGzip("gzip;q=0.000, deflate")).isFalse();
+        //Ghi rõ gzip thì không theo "*"
+        assertThat(ProductRestController.acceptsGzip("*, gzip;q=0")).isFalse();
+        assertThat(ProductRestController.acceptsGzip("identity, *;q=0")).isFalse();
+    }
+
+    @Test
+    void otherCodingsDoNotMeanGzip() {
+        assertThat(ProductRestController.acceptsGzip(null)).isFalse();
+        assertThat(ProductRestController.acceptsGzip("")).isFalse();
+        assertThat(ProductRestController.acceptsGzip("identity")).isFalse();
+        assertThat(ProductRestController.acceptsGzip("gzipx, br")).isFalse();
+        assertThat(ProductRestController.acceptsGzip("gzip;q=abc")).isFalse();
+    }
+}
@@ -0,0 +1,42 @@
+package com.project.assignment.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadControllerTests {
+
+    @Test
+    void singleRangesAreClampedToTheFile() {
+        assertThat(UploadController.parseRange("bytes=0-99", 1000)).containsExactly(0, 99);
+        assertThat(UploadController.parseRange("bytes=500-", 1000)).containsExactly(500, 999);
+        assertThat(UploadController.parseRange("bytes=900-5000", 1000)).containsExactly(900, 999);
+        assertThat(UploadController.parseRange("bytes= 10 - 20 ", 1000)).containsExactly(10, 20);
+    }
+
+    @Test
+    void suffixRangeTakesTheLastBytes() {
+        assertThat(UploadController.parseRange("bytes=-100", 1000)).containsExactly(900, 999);
+        //Dài hơn file thì trả cả file
+        assertThat(UploadController.parseRange("bytes=-5000", 1000)).containsExactly(0, 999);
+    }
+
+    @Test
+    void rangesOutsideTheFileAreNotSatisfiable() {
+        assertThat(UploadController.parseRange("bytes=1000-", 1000)).isEmpty();
+        assertThat(UploadController.parseRange("bytes=-0", 1000)).isEmpty();
+        assertThat(UploadController.parseRange("bytes=-10", 0)).isEmpty();
+        assertThat(UploadController.parseRange("bytes=0-", 0)).isEmpty();
+    }
+
+    @Test
+    void unsupportedOrMalformedRangesServeTheWholeFile() {
+        assertThat(UploadController.parseRange("bytes=0-1,5-6", 1000)).isNull();
+        assertThat(UploadController.parseRange("items=0-1", 1000)).isNull();
+        assertThat(UploadController.parseRange("bytes=5", 1000)).isNull();
+        assertThat(UploadController.parseRange("bytes=-", 1000)).isNull();
+        assertThat(UploadController.parseRange("bytes=20-10", 1000)).isNull();
+        assertThat(UploadController.parseRange("bytes=a-b", 1000)).isNull();
+        assertThat(UploadController.parseRange("bytes=99999999999999999999-", 1000)).isNull();
+    }
+}
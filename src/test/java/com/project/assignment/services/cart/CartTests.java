@@ -0,0 +1,77 @@
+package com.project.assignment.services.cart;
+
+import com.project.assignment.utilities.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartTests {
+
+    @Test
+    void totalsAreExactInCents() {
+        Cart cart = new Cart();
+        //0.1 + 0.2 bằng float thì lệch, bằng cent thì đúng
+        cart.add(1, Money.toCents(0.1f), 1);
+        cart.add(2, Money.toCents(0.2f), 1);
+        cart.add(3, Money.toCents(19.99f), 3);
+
+        assertThat(cart.count()).isEqualTo(5);
+        assertThat(cart.amountCents()).isEqualTo(6027);
+        assertThat(Money.fromCents(cart.amountCents())).isEqualByComparingTo(new BigDecimal("60.27"));
+    }
+
+    @Test
+    void everyChangeKeepsTotalsInLineWithTheLines() {
+        Cart cart = new Cart();
+        cart.add(1, 1999, 2);
+        //Thêm lại product đã có thì cộng số lượng và giữ giá lúc thêm lần đầu
+        assertThat(cart.add(1, 2500, 1)).isEqualTo(3);
+        cart.add(2, 500, 4);
+        assertThat(cart.increment(2, -1)).isTrue();
+        assertThat(cart.increment(9, 1)).isFalse();
+        assertThat(cart.setQuantity(1, 1)).isTrue();
+
+        assertThat(cart.count()).isEqualTo(4);
+        assertThat(cart.amountCents()).isEqualTo(1999 + 3 * 500);
+
+        cart.remove(1);
+        assertThat(cart.lines()).singleElement().satisfies(line -> {
+            assertThat(line.getProductId()).isEqualTo(2);
+            assertThat(line.getQty()).isEqualTo(3);
+            assertThat(line.getUnitCents()).isEqualTo(500);
+        });
+        assertThat(cart.amountCents()).isEqualTo(1500);
+
+        cart.clear();
+        assertThat(cart.isEmpty()).isTrue();
+        assertThat(cart.count()).isZero();
+        assertThat(cart.amountCents()).isZero();
+    }
+
+    @Test
+    void runningTotalsMatchARecountAfterRandomChanges() {
+        Random random = new Random(3);
+        Cart cart = new Cart();
+        for (int step = 0; step < 5000; step++) {
+            int productId = random.nextInt(20);
+            switch (random.nextInt(4)) {
+                case 0 -> cart.add(productId, 1 + random.nextInt(100000), 1 + random.nextInt(5));
+                case 1 -> cart.increment(productId, 1 + random.nextInt(3));
+                case 2 -> cart.setQuantity(productId, 1 + random.nextInt(10));
+                default -> cart.remove(productId);
+            }
+        }
+
+        long amount = 0;
+        int count = 0;
+        for (CartLine line : cart.lines()) {
+            amount += line.getQty() * line.getUnitCents();
+            count += line.getQty();
+        }
+        assertThat(cart.amountCents()).isEqualTo(amount);
+        assertThat(cart.count()).isEqualTo(count);
+    }
+}
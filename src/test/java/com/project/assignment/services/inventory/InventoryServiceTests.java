@@ -0,0 +1,86 @@
+package com.project.assignment.services.inventory;
+
+import com.project.assignment.models.ProductStock;
+import com.project.assignment.repositories.OrderDetailRepository;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.repositories.ProductStockRepository;
+import com.project.assignment.systems.OutOfStockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTests {
+    private final ProductStockRepository productStockRepository = mock(ProductStockRepository.class);
+    private final OrderDetailRepository orderDetailRepository = mock(OrderDetailRepository.class);
+    private final InventoryService inventoryService = new InventoryService(productStockRepository,
+            mock(OrderRepository.class), orderDetailRepository, mock(PlatformTransactionManager.class));
+
+    @AfterEach
+    void stop() {
+        inventoryService.stop();
+    }
+
+    @Test
+    void newCounterStartsFromDatabaseMinusPendingOrders() {
+        when(productStockRepository.findAll()).thenReturn(List.of());
+        assertThat(inventoryService.load()).isTrue();
+        //Product 7 đã có 10 trong database và 4 đã bán trong các đơn chưa flush
+        when(productStockRepository.addQuantity(7, 5)).thenReturn(1);
+        when(productStockRepository.findById(7))
+                .thenReturn(Optional.of(ProductStock.builder().productId(7).quantity(15).build()));
+        when(orderDetailRepository.sumPendingQuantityByProduct()).thenReturn(List.of(pending(7, 4L)));
+
+        assertThat(inventoryService.adjustStock(7, 5)).isEqualTo(11);
+        inventoryService.reserve(List.of(7), List.of(11));
+        assertThat(inventoryService.getAvailable(7)).isZero();
+        assertThatThrownBy(() -> inventoryService.reserve(List.of(7), List.of(1))).isInstanceOf(OutOfStockException.class);
+    }
+
+    @Test
+    void negativeInitialStockIsRejected() {
+        when(productStockRepository.findAll()).thenReturn(List.of());
+        inventoryService.load();
+        when(productStockRepository.addQuantity(8, -3)).thenReturn(0);
+
+        assertThatThrownBy(() -> inventoryService.adjustStock(8, -3)).isInstanceOf(IllegalArgumentException.class);
+        verify(productStockRepository, never()).save(any());
+        assertThat(inventoryService.getAvailable(8)).isNull();
+    }
+
+    @Test
+    void failedLoadRejectsOrdersAndFlushDoesNotTouchTheDatabase() {
+        when(orderDetailRepository.sumPendingQuantityByProduct()).thenThrow(new IllegalStateException("database is down"));
+
+        assertThat(inventoryService.load()).isFalse();
+        inventoryService.flush();
+
+        verify(productStockRepository, never()).findAll();
+        assertThatThrownBy(() -> inventoryService.reserve(List.of(1), List.of(1)))
+                .hasMessageContaining("not loaded");
+    }
+
+    private static OrderDetailRepository.ProductQuantity pending(Integer productId, Long quantity) {
+        return new OrderDetailRepository.ProductQuantity() {
+            @Override
+            public Integer getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
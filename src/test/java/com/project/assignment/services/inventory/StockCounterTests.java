@@ -0,0 +1,132 @@
+package com.project.assignment.services.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockCounterTests {
+
+    @Test
+    void takeGathersAcrossStripesOnlyWhenEnoughIsAvailable() {
+        //10 chia vào 4 stripe: 3, 3, 2, 2, không stripe nào đủ 5
+        StockCounter counter = new StockCounter(10, 4);
+
+        assertThat(counter.tryTake(5)).isTrue();
+        assertThat(counter.available()).isEqualTo(5);
+        assertThat(counter.tryTake(6)).isFalse();
+        //Gom không đủ thì không mất phần đã lấy
+        assertThat(counter.available()).isEqualTo(5);
+        assertThat(counter.tryTake(5)).isTrue();
+        assertThat(counter.available()).isZero();
+    }
+
+    @Test
+    void forcedTakeGoesBelowZeroUntilRestocked() {
+        StockCounter counter = new StockCounter(3, 4);
+
+        counter.take(5);
+        assertThat(counter.available()).isEqualTo(-2);
+        assertThat(counter.tryTake(1)).isFalse();
+
+        counter.add(4);
+        assertThat(counter.available()).isEqualTo(2);
+        assertThat(counter.tryTake(2)).isTrue();
+    }
+
+    @Test
+    void concurrentBuyersNeverTakeMoreThanTheStock() throws Exception {
+        int quantity = 1000;
+        int threads = 16;
+        StockCounter counter = new StockCounter(quantity, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int qty = 1 + t % 3;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int taken = 0;
+                    int released = 0;
+                    //Mua cho tới khi hết hàng, cứ 4 lần mua thì trả lại một lần như đơn không tạo được
+                    for (int attempt = 0; attempt < 10000; attempt++) {
+                        if (!counter.tryTake(qty)) {
+                            if (counter.available() < qty) {
+                                break;
+                            }
+                            continue;
+                        }
+                        taken += qty;
+                        if (attempt % 4 == 3) {
+                            counter.add(qty);
+                            released += qty;
+                        }
+                    }
+                    return new int[]{taken, released};
+                }));
+            }
+            start.countDown();
+
+            int kept = 0;
+            for (Future<int[]> result : results) {
+                int[] counts = result.get(30, TimeUnit.SECONDS);
+                kept += counts[0] - counts[1];
+            }
+            assertThat(kept).isLessThanOrEqualTo(quantity);
+            assertThat(counter.available()).isEqualTo(quantity - kept).isNotNegative();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void releasesRestoreTheOriginalTotal() throws Exception {
+        int quantity = 500;
+        int threads = 8;
+        StockCounter counter = new StockCounter(quantity, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    int taken = 0;
+                    while (counter.tryTake(1)) {
+                        taken++;
+                    }
+                    return taken;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+            //Lấy tới hết hàng thì tổng đã lấy đúng bằng số có
+            assertThat(total).isEqualTo(quantity);
+            assertThat(counter.available()).isZero();
+
+            List<Future<?>> releases = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int share = quantity / threads + (t < quantity % threads ? 1 : 0);
+                releases.add(executor.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        counter.add(1);
+                    }
+                }));
+            }
+            for (Future<?> release : releases) {
+                release.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(counter.available()).isEqualTo(quantity);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
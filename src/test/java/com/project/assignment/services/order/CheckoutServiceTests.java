@@ -0,0 +1,135 @@
+package com.project.assignment.services.order;
+
+import com.project.assignment.models.Item;
+import com.project.assignment.models.Order;
+import com.project.assignment.models.User;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.responses.OrderStatusResponse;
+import com.project.assignment.services.CartService;
+import com.project.assignment.services.OrderService;
+import com.project.assignment.services.inventory.InventoryService;
+import com.project.assignment.systems.OutOfStockException;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckoutServiceTests {
+    private final CartService cartService = mock(CartService.class);
+    private final OrderService orderService = mock(OrderService.class);
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final AtomicInteger orderIds = new AtomicInteger();
+    private final AtomicInteger guestAccounts = new AtomicInteger();
+
+    private CheckoutService checkoutService(int cacheSize) {
+        when(cartService.getItems()).thenReturn(List.of(new Item(5, "lamp", new BigDecimal("12.50"), 2)));
+        when(orderService.createOrder(any(), any(), anyList(), anyList())).thenAnswer(invocation -> order(orderIds.incrementAndGet()));
+        return new CheckoutService(cartService, orderService, mock(OrderIntake.class), inventoryService, orderRepository,
+                mock(PlatformTransactionManager.class), cacheSize);
+    }
+
+    private Supplier<User> guest() {
+        return () -> {
+            guestAccounts.incrementAndGet();
+            return new User();
+        };
+    }
+
+    @Test
+    void resubmittingTheSameKeyReturnsTheFirstOrder() {
+        CheckoutService checkoutService = checkoutService(100);
+
+        OrderStatusResponse first = checkoutService.checkoutAsGuest("s1", "k1", guest());
+        OrderStatusResponse second = checkoutService.checkoutAsGuest("s1", " k1 ", guest());
+
+        assertThat(second.getOrderId()).isEqualTo(first.getOrderId());
+        assertThat(second.getStatus()).isEqualTo(OrderStatusResponse.Status.COMPLETED);
+        verify(orderService, times(1)).createOrder(any(), eq("k1"), anyList(), anyList());
+        //Gửi lại không tạo thêm tài khoản khách
+        assertThat(guestAccounts).hasValue(1);
+    }
+
+    @Test
+    void sameKeyFromAnotherBuyerPlacesItsOwnOrder() {
+        CheckoutService checkoutService = checkoutService(100);
+
+        OrderStatusResponse guest = checkoutService.checkoutAsGuest("s1", "k1", guest());
+        OrderStatusResponse otherGuest = checkoutService.checkoutAsGuest("s2", "k1", guest());
+        OrderStatusResponse user = checkoutService.checkout(7, "k1", User::new);
+
+        assertThat(List.of(guest.getOrderId(), otherGuest.getOrderId(), user.getOrderId())).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void failedFirstAttemptCanBeRetriedWithTheSameKey() {
+        CheckoutService checkoutService = checkoutService(100);
+        doThrow(new OutOfStockException(5)).doNothing().when(inventoryService).reserve(anyList(), anyList());
+
+        assertThatThrownBy(() -> checkoutService.checkoutAsGuest("s1", "k1", guest())).isInstanceOf(OutOfStockException.class);
+        OrderStatusResponse retry = checkoutService.checkoutAsGuest("s1", "k1", guest());
+
+        assertThat(retry.getOrderId()).isEqualTo(1);
+        //Lần hết hàng không tạo tài khoản khách
+        assertThat(guestAccounts).hasValue(1);
+    }
+
+    @Test
+    void evictedKeyIsFoundInTheDatabaseOnceTheCartIsCleared() {
+        CheckoutService checkoutService = checkoutService(1);
+        checkoutService.checkout(7, "k1", User::new);
+        checkoutService.checkout(7, "k2", User::new);
+        //Giỏ đã bị xoá sau lần đặt đầu, k1 không còn trong cache
+        when(cartService.getItems()).thenReturn(List.of());
+        when(orderRepository.findIdByUserIdAndIdempotencyKey(7, "k1")).thenReturn(Optional.of(1));
+
+        assertThat(checkoutService.checkout(7, "k1", User::new).getOrderId()).isEqualTo(1);
+        assertThatThrownBy(() -> checkoutService.checkout(7, "k3", User::new))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cart is empty");
+    }
+
+    @Test
+    void concurrentResubmitWaitsForTheFirstAttempt() throws Exception {
+        CheckoutService checkoutService = checkoutService(100);
+        CountDownLatch placing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(any(), any(), anyList(), anyList())).thenAnswer(invocation -> {
+            placing.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return order(orderIds.incrementAndGet());
+        });
+
+        CompletableFuture<OrderStatusResponse> first = CompletableFuture.supplyAsync(() -> checkoutService.checkout(7, "k1", User::new));
+        assertThat(placing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<OrderStatusResponse> second = CompletableFuture.supplyAsync(() -> checkoutService.checkout(7, "k1", User::new));
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS).getOrderId()).isEqualTo(first.get(5, TimeUnit.SECONDS).getOrderId());
+        verify(orderService, times(1)).createOrder(any(), any(), anyList(), anyList());
+    }
+
+    private static Order order(int id) {
+        Order order = new Order();
+        order.setId(id);
+        return order;
+    }
+}
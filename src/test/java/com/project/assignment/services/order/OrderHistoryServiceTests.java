@@ -0,0 +1,121 @@
+package com.project.assignment.services.order;
+
+import com.project.assignment.models.Order;
+import com.project.assignment.models.User;
+import com.project.assignment.responses.OrderHistoryResponse;
+import com.project.assignment.responses.OrderSummaryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(OrderHistoryService.class)
+class OrderHistoryServiceTests {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    private User user;
+    private User otherUser;
+    private final List<Order> orders = new ArrayList<>();
+
+    @BeforeEach
+    void orders() {
+        user = entityManager.persist(user("alice"));
+        otherUser = entityManager.persist(user("bob"));
+        //Ba ngày, nhiều đơn cùng ngày, vài đơn không có order_date
+        for (int i = 0; i < 12; i++) {
+            LocalDate date = i % 4 == 3 ? null : DAY.minusDays(i % 3);
+            orders.add(entityManager.persist(order(i % 5 == 4 ? otherUser : user, date)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void allPagesWithoutFilterIncludeOrdersWithoutDate() {
+        List<Integer> expected = orders.stream()
+                //Mới nhất trước, đơn không có ngày ở cuối
+                .sorted(Comparator.comparing(Order::getOrderDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(Order::getId)
+                        .reversed())
+                .map(Order::getId)
+                .toList();
+
+        assertThat(readAll(null, null, null, 5)).isEqualTo(expected);
+    }
+
+    @Test
+    void dateFilterOnlyAppliesWhenGiven() {
+        List<Integer> userOrders = orders.stream()
+                .filter(order -> order.getUser().getId().equals(user.getId()))
+                .map(Order::getId)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        List<Integer> userOrdersOnDay = orders.stream()
+                .filter(order -> order.getUser().getId().equals(user.getId()))
+                .filter(order -> order.getOrderDate() != null && order.getOrderDate().equals(Date.valueOf(DAY)))
+                .map(Order::getId)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        assertThat(readAll(user.getId(), null, null, 3)).isEqualTo(userOrders);
+        assertThat(readAll(user.getId(), DAY, DAY, 2)).isEqualTo(userOrdersOnDay);
+        //Chỉ có from vẫn lọc, đơn không có ngày bị loại
+        assertThat(readAll(null, DAY.minusDays(1), null, 4)).hasSize((int) orders.stream()
+                .filter(order -> order.getOrderDate() != null && !order.getOrderDate().before(Date.valueOf(DAY.minusDays(1))))
+                .count());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> orderHistoryService.getHistory(null, null, null, "%%%", 5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    private List<Integer> readAll(Integer userId, LocalDate from, LocalDate to, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            OrderHistoryResponse page = orderHistoryService.getHistory(userId, from, to, cursor, limit);
+            assertThat(page.getOrders()).hasSizeLessThanOrEqualTo(limit);
+            page.getOrders().stream().map(OrderSummaryResponse::getId).forEach(ids::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+
+    private static Order order(User user, LocalDate date) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(date != null ? Date.valueOf(date) : null);
+        order.setTotalMoney(10f);
+        return order;
+    }
+}
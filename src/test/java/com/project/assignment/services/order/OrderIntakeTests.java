@@ -0,0 +1,114 @@
+package com.project.assignment.services.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.assignment.models.Order;
+import com.project.assignment.repositories.OrderRepository;
+import com.project.assignment.responses.OrderStatusResponse;
+import com.project.assignment.services.OrderService;
+import com.project.assignment.services.ProductService;
+import com.project.assignment.services.inventory.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OrderService orderService = mock(OrderService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final InventoryService inventoryService = mock(InventoryService.class);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void badOrderInReplayedBatchDoesNotBlockTheOthers() throws Exception {
+        Path path = dir.resolve("intake.journal");
+        StringBuilder journal = new StringBuilder();
+        for (String reference : List.of("r1", "r2", "r3", "r4")) {
+            journal.append("A ").append(objectMapper.writeValueAsString(OrderJournalTests.request(reference))).append('\n');
+        }
+        Files.writeString(path, journal, StandardCharsets.UTF_8);
+        //r1 đã commit trước khi crash nhưng chưa kịp ghi "done"
+        when(orderRepository.findExistingReferences(anyList())).thenReturn(List.of("r1"));
+        AtomicInteger ids = new AtomicInteger();
+        List<String> created = new CopyOnWriteArrayList<>();
+        when(orderService.createOrders(anyList())).thenAnswer(invocation -> {
+            List<OrderRequest> batch = invocation.getArgument(0);
+            batch.forEach(request -> created.add(request.getReference()));
+            if (batch.stream().anyMatch(request -> request.getReference().equals("r3"))) {
+                throw new IllegalArgumentException("Product 11 not found");
+            }
+            return batch.stream().map(request -> order(ids.incrementAndGet(), request.getReference())).toList();
+        });
+
+        OrderIntake intake = new OrderIntake(orderService, mock(ProductService.class), orderRepository, inventoryService,
+                objectMapper, OrderIntake.MODE_ASYNC, 10, 10, path.toString());
+        try {
+            intake.start();
+
+            await().atMost(Duration.ofSeconds(10)).until(() -> intake.getStatus("r4") != null);
+            assertThat(intake.getStatus("r2").getStatus()).isEqualTo(OrderStatusResponse.Status.COMPLETED);
+            assertThat(intake.getStatus("r3").getStatus()).isEqualTo(OrderStatusResponse.Status.FAILED);
+            assertThat(intake.getStatus("r3").getMessage()).isEqualTo("Product 11 not found");
+            assertThat(intake.getStatus("r4").getStatus()).isEqualTo(OrderStatusResponse.Status.COMPLETED);
+            //Chỉ hàng của đơn lỗi được trả lại, đơn đã commit trước khi crash không tạo lại
+            verify(inventoryService).release(List.of(10, 11), List.of(1, 2));
+            assertThat(created).doesNotContain("r1");
+        } finally {
+            intake.stop();
+        }
+        //Mọi đơn đều đã xong nên journal được cắt về rỗng
+        assertThat(Files.size(path)).isZero();
+    }
+
+    @Test
+    void otherErrorsRetryTheWholeBatch() throws IOException, InterruptedException {
+        //Lỗi không phải lỗi dữ liệu (mất kết nối...) thì chờ rồi commit lại cả lô, không loại đơn nào
+        Path path = dir.resolve("intake.journal");
+        Files.writeString(path, "A " + objectMapper.writeValueAsString(OrderJournalTests.request("r1")) + "\n"
+                + "A " + objectMapper.writeValueAsString(OrderJournalTests.request("r2")) + "\n", StandardCharsets.UTF_8);
+        when(orderRepository.findExistingReferences(anyList())).thenReturn(List.of());
+        when(orderService.createOrders(anyList()))
+                .thenThrow(new QueryTimeoutException("connection lost"))
+                .thenReturn(List.of(order(1, "r1"), order(2, "r2")));
+
+        OrderIntake intake = new OrderIntake(orderService, mock(ProductService.class), orderRepository, inventoryService,
+                objectMapper, OrderIntake.MODE_ASYNC, 10, 10, path.toString());
+        try {
+            intake.start();
+
+            await().atMost(Duration.ofSeconds(20)).until(() -> intake.getStatus("r2") != null);
+            assertThat(intake.getStatus("r1").getStatus()).isEqualTo(OrderStatusResponse.Status.COMPLETED);
+            assertThat(intake.getStatus("r2").getStatus()).isEqualTo(OrderStatusResponse.Status.COMPLETED);
+            verify(orderService, times(2)).createOrders(anyList());
+            verify(inventoryService, never()).release(anyList(), anyList());
+        } finally {
+            intake.stop();
+        }
+    }
+
+    private static Order order(int id, String reference) {
+        Order order = new Order();
+        order.setId(id);
+        order.setReference(reference);
+        return order;
+    }
+}
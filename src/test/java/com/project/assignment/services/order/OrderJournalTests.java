@@ -0,0 +1,76 @@
+package com.project.assignment.services.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderJournalTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void openReturnsAcceptedOrdersThatAreNotDoneAndSkipsTornLine() throws IOException {
+        Path path = dir.resolve("intake.journal");
+        //r2 đã xong, "D r9" của đơn đã xong từ lâu, dòng cuối ghi dở lúc crash
+        Files.writeString(path, accepted(request("r1")) + accepted(request("r2")) + "D r2\n" + "D r9\n"
+                + accepted(request("r3")) + "A {\"reference\":\"r4\",\"userId", StandardCharsets.UTF_8);
+
+        try (OrderJournal journal = new OrderJournal(path, objectMapper)) {
+            assertThat(journal.open()).extracting(OrderRequest::getReference).containsExactly("r1", "r3");
+            journal.accepted(request("r5"));
+        }
+        //Record mới không bị nối vào dòng ghi dở
+        try (OrderJournal journal = new OrderJournal(path, objectMapper)) {
+            assertThat(journal.open()).extracting(OrderRequest::getReference).containsExactly("r1", "r3", "r5");
+        }
+    }
+
+    @Test
+    void journalIsTruncatedWhenNothingIsPending() throws IOException {
+        Path path = dir.resolve("data").resolve("intake.journal");
+
+        try (OrderJournal journal = new OrderJournal(path, objectMapper)) {
+            assertThat(journal.open()).isEmpty();
+            journal.accepted(request("r1"));
+            journal.accepted(request("r2"));
+            journal.done(List.of("r1"));
+            assertThat(Files.size(path)).isPositive();
+            journal.done(List.of("r2"));
+            assertThat(Files.size(path)).isZero();
+            //Sau khi cắt vẫn ghi tiếp được
+            journal.accepted(request("r3"));
+        }
+        try (OrderJournal journal = new OrderJournal(path, objectMapper)) {
+            assertThat(journal.open()).extracting(OrderRequest::getReference).containsExactly("r3");
+        }
+    }
+
+    @Test
+    void journalWithOnlyFinishedOrdersIsTruncatedOnOpen() throws IOException {
+        Path path = dir.resolve("intake.journal");
+        Files.writeString(path, accepted(request("r1")) + "D r1\n" + "A {\"refer", StandardCharsets.UTF_8);
+
+        try (OrderJournal journal = new OrderJournal(path, objectMapper)) {
+            assertThat(journal.open()).isEmpty();
+        }
+        assertThat(Files.size(path)).isZero();
+    }
+
+    private String accepted(OrderRequest request) throws IOException {
+        return "A " + objectMapper.writeValueAsString(request) + "\n";
+    }
+
+    static OrderRequest request(String reference) {
+        return new OrderRequest(reference, null, 1, List.of(10, 11), List.of(1, 2), 0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.project.assignment.services.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCountCacheTests {
+    private final ProductCountCache cache = new ProductCountCache();
+
+    @Test
+    void countIsLoadedOnceUntilInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.count(ProductCountCache.ALL, () -> 10 + loads.incrementAndGet())).isEqualTo(11);
+        assertThat(cache.count(ProductCountCache.ALL, () -> 10 + loads.incrementAndGet())).isEqualTo(11);
+        cache.invalidate();
+        assertThat(cache.count(ProductCountCache.ALL, () -> 10 + loads.incrementAndGet())).isEqualTo(12);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void countStartedBeforeAWriteIsNotCached() {
+        //Product được ghi trong lúc đang đếm: count trả về cho request này nhưng không được dùng lại
+        assertThat(cache.count(ProductCountCache.ALL, () -> {
+            cache.invalidate();
+            return 5;
+        })).isEqualTo(5);
+
+        assertThat(cache.count(ProductCountCache.ALL, () -> 6)).isEqualTo(6);
+        assertThat(cache.count(ProductCountCache.ALL, () -> 7)).isEqualTo(6);
+    }
+
+    @Test
+    void staleCountDoesNotReplaceANewerOne() {
+        long count = cache.count(ProductCountCache.byCategory(1), () -> {
+            cache.invalidate();
+            //Request khác đếm xong sau lần ghi trong khi request này còn đang đếm
+            assertThat(cache.count(ProductCountCache.byCategory(1), () -> 3)).isEqualTo(3);
+            return 2;
+        });
+
+        assertThat(count).isEqualTo(2);
+        assertThat(cache.count(ProductCountCache.byCategory(1), () -> 9)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,74 @@
+package com.project.assignment.services.product;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCursorTests {
+
+    @Test
+    void nameCursorRoundTripsNamesWithSeparator() {
+        String token = ProductCursor.encode(ProductCursor.SORT_NAME, ScrollPosition.forward(keys("name", "Áo | khoác", 42)), true);
+
+        ProductCursor cursor = ProductCursor.decode(token, ProductCursor.SORT_CREATED);
+
+        //Sort lấy từ token, không lấy sort mặc định
+        assertThat(cursor.getSort()).isEqualTo(ProductCursor.SORT_NAME);
+        assertThat(cursor.getPosition().scrollsForward()).isTrue();
+        assertThat(cursor.getPosition().getKeys()).containsEntry("name", "Áo | khoác").containsEntry("id", 42);
+        assertThat(cursor.toSort()).isEqualTo(Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id")));
+        //Token dùng được trong query string
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void createdCursorKeepsDateAndDirection() {
+        LocalDate date = LocalDate.of(2024, 2, 29);
+        String token = ProductCursor.encode(ProductCursor.SORT_CREATED, ScrollPosition.forward(keys("createDate", date, 7)), false);
+
+        ProductCursor cursor = ProductCursor.decode(token, ProductCursor.SORT_NAME);
+
+        assertThat(cursor.getSort()).isEqualTo(ProductCursor.SORT_CREATED);
+        assertThat(cursor.getPosition().scrollsBackward()).isTrue();
+        assertThat(cursor.getPosition().getKeys()).containsEntry("createDate", date).containsEntry("id", 7);
+        assertThat(cursor.toSort()).isEqualTo(Sort.by(Sort.Order.desc("createDate"), Sort.Order.desc("id")));
+    }
+
+    @Test
+    void missingCursorStartsFromTheFirstPage() {
+        ProductCursor cursor = ProductCursor.decode(" ", "unknown");
+
+        assertThat(cursor.getSort()).isEqualTo(ProductCursor.SORT_NAME);
+        assertThat(cursor.getPosition().isInitial()).isTrue();
+        assertThat(ProductCursor.decode(null, ProductCursor.SORT_CREATED).getSort()).isEqualTo(ProductCursor.SORT_CREATED);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> ProductCursor.decode("not base64!", ProductCursor.SORT_NAME))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        String missingParts = Base64.getUrlEncoder().encodeToString("name|F".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> ProductCursor.decode(missingParts, ProductCursor.SORT_NAME))
+                .isInstanceOf(IllegalArgumentException.class);
+        String badDate = Base64.getUrlEncoder().encodeToString("created|F|1|yesterday".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> ProductCursor.decode(badDate, ProductCursor.SORT_NAME))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, Object> keys(String sortKey, Object value, int id) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortKey, value);
+        keys.put("id", id);
+        return keys;
+    }
+}
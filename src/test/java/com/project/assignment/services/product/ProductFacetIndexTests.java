@@ -0,0 +1,139 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTests {
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductFacetIndex index = new ProductFacetIndex(productRepository);
+
+    @AfterEach
+    void stop() {
+        index.stop();
+    }
+
+    @Test
+    void facetCountsApplyOtherFacetsButNotTheirOwn() {
+        index.put(new Row(1, "a", 10f, LocalDate.of(2024, 1, 1), 1));
+        index.put(new Row(2, "b", 30f, LocalDate.of(2024, 1, 2), 1));
+        index.put(new Row(3, "c", 30f, LocalDate.of(2024, 1, 3), 2));
+        index.put(new Row(4, "d", 150f, LocalDate.of(2024, 1, 4), 3));
+
+        FacetResult result = index.query(List.of(1, 2), List.of(PriceRange.FROM_20_TO_50), ProductFacetIndex.SORT_NAME, 0, 10);
+
+        assertThat(result.getProductIds()).containsExactly(2, 3);
+        assertThat(result.getTotal()).isEqualTo(2);
+        //Số của mỗi category tính theo khoảng giá đang chọn
+        assertThat(result.getCategoryCounts()).containsEntry(1, 1).containsEntry(2, 1).containsEntry(3, 0);
+        //Số của mỗi khoảng giá tính theo các category đang chọn
+        assertThat(result.getPriceCounts())
+                .containsEntry(PriceRange.UNDER_20.getKey(), 1)
+                .containsEntry(PriceRange.FROM_20_TO_50.getKey(), 2)
+                .containsEntry(PriceRange.FROM_100_TO_200.getKey(), 0);
+    }
+
+    @Test
+    void updateMovesProductBetweenFacets() {
+        index.put(new Row(1, "a", 10f, LocalDate.of(2024, 1, 1), 1));
+        index.put(new Row(1, "a", 250f, LocalDate.of(2024, 1, 1), 2));
+
+        assertThat(index.query(List.of(1), null, ProductFacetIndex.SORT_NAME, 0, 10).getTotal()).isZero();
+        assertThat(index.query(List.of(2), List.of(PriceRange.OVER_200), ProductFacetIndex.SORT_NAME, 0, 10).getProductIds())
+                .containsExactly(1);
+    }
+
+    @Test
+    void largeResultPagesFollowTheGlobalOrderAfterChanges() {
+        //Nhiều hơn SMALL_RESULT_THRESHOLD để đi qua thứ tự sort toàn cục được cập nhật từng slot
+        Random random = new Random(1);
+        Map<Integer, Row> rows = new HashMap<>();
+        for (int id = 1; id <= 3000; id++) {
+            Row row = randomRow(random, id);
+            rows.put(id, row);
+            index.put(row);
+        }
+        index.build();
+        for (int step = 0; step < 2000; step++) {
+            int id = 1 + random.nextInt(3500);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                rows.remove(id);
+            } else {
+                Row row = randomRow(random, id);
+                rows.put(id, row);
+                index.put(row);
+            }
+        }
+        for (String sort : List.of(ProductFacetIndex.SORT_NAME, ProductFacetIndex.SORT_PRICE_ASC,
+                ProductFacetIndex.SORT_PRICE_DESC, ProductFacetIndex.SORT_NEWEST)) {
+            List<Integer> expected = rows.values().stream().sorted(comparator(sort)).map(Row::getId).toList();
+            assertThat(index.query(null, null, sort, 3, 50).getProductIds()).isEqualTo(expected.subList(150, 200));
+        }
+    }
+
+    @Test
+    void slotsOfRemovedProductsAreReused() {
+        for (int id = 1; id <= 100; id++) {
+            index.put(new Row(id, "p" + id, 10f, LocalDate.of(2024, 1, 1), 1));
+        }
+        for (int round = 1; round <= 10; round++) {
+            for (int id = 1; id <= 100; id++) {
+                index.remove(id + (round - 1) * 100);
+                index.put(new Row(id + round * 100, "p" + id, 10f, LocalDate.of(2024, 1, 1), 1));
+            }
+        }
+
+        assertThat((Integer) ReflectionTestUtils.getField(index, "slotCount")).isEqualTo(100);
+        assertThat(index.query(null, null, ProductFacetIndex.SORT_NAME, 0, 200).getProductIds())
+                .hasSize(100)
+                .allMatch(id -> id > 1000);
+    }
+
+    @Test
+    void buildIsRetriedUntilTheDatabaseAnswers() {
+        when(productRepository.findFacetRowsAfter(anyInt(), any()))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(List.of(new Row(5, "lamp", 12f, LocalDate.of(2024, 1, 1), 1)));
+
+        index.start();
+
+        await().atMost(Duration.ofSeconds(10)).until(index::isReady);
+        assertThat(index.query(List.of(1), null, ProductFacetIndex.SORT_NAME, 0, 10).getProductIds()).containsExactly(5);
+    }
+
+    private static Row randomRow(Random random, int id) {
+        return new Row(id, random.nextInt(10) == 0 ? null : "n" + random.nextInt(500), (float) random.nextInt(300),
+                LocalDate.of(2024, 1, 1).plusDays(random.nextInt(300)), 1 + random.nextInt(5));
+    }
+
+    private static Comparator<Row> comparator(String sort) {
+        Comparator<Row> byId = Comparator.comparing(Row::getId);
+        return switch (sort) {
+            case ProductFacetIndex.SORT_PRICE_ASC -> Comparator.comparing(Row::getPrice).thenComparing(byId);
+            case ProductFacetIndex.SORT_PRICE_DESC -> Comparator.comparing(Row::getPrice).reversed().thenComparing(byId);
+            case ProductFacetIndex.SORT_NEWEST -> Comparator.comparing(Row::getCreateDate).reversed().thenComparing(byId.reversed());
+            default -> Comparator.comparing(Row::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)).thenComparing(byId);
+        };
+    }
+
+    private record Row(Integer getId, String getName, Float getPrice, LocalDate getCreateDate, Integer getCategoryId)
+            implements ProductRepository.FacetRow {
+    }
+}
@@ -0,0 +1,75 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.models.Category;
+import com.project.assignment.models.Product;
+import com.project.assignment.models.ProductImage;
+import com.project.assignment.responses.ProductResponse;
+import com.project.assignment.services.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({ProductRestService.class, ProductCountCache.class, ProductService.class, ProductSearchIndex.class, ProductCache.class})
+class ProductRestServiceTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRestService productRestService;
+
+    @Test
+    void productPageIsAssembledWithFixedNumberOfStatements() {
+        List<Category> categories = List.of(
+                entityManager.persist(Category.builder().name("Men").build()),
+                entityManager.persist(Category.builder().name("Women").build()),
+                entityManager.persist(Category.builder().name("Kids").build())
+        );
+        for (int i = 0; i < 100; i++) {
+            Product product = entityManager.persist(Product
+                    .builder()
+                    .name("Product " + i)
+                    .price(10f + i)
+                    .createDate(LocalDate.now())
+                    .category(categories.get(i % categories.size()))
+                    .build());
+            entityManager.persist(ProductImage.builder().product(product).url("a" + i + ".jpg").build());
+            entityManager.persist(ProductImage.builder().product(product).url("b" + i + ".jpg").build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Product> products = productRestService.getAllProducts(PageRequest.of(0, 100)).getContent();
+        List<ProductResponse> responses = productRestService.productResponseList(products);
+
+        // Một query cho products (kèm category), một query count, một query cho toàn bộ ảnh
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(responses).hasSize(100);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.getCategory().getCategoryName()).isNotNull();
+            assertThat(response.getImages()).hasSize(2);
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.project.assignment.services.product;
+
+import com.project.assignment.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTests {
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productRepository);
+
+    @AfterEach
+    void stop() {
+        index.stop();
+    }
+
+    @Test
+    void exactMatchRanksAbovePrefixAndNameAboveDescription() {
+        index.index(1, "Áo khoác", null);
+        index.index(2, "Áo", "khoác gió");
+        index.index(3, "Áo khoácnỉ", null);
+        index.index(4, "Quần", "áo");
+
+        assertThat(index.search("ao khoac", 10)).containsExactly(1, 3, 2);
+        assertThat(index.search("áo", 10)).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void everyQueryTermMustMatch() {
+        index.index(1, "red shirt", null);
+        index.index(2, "blue shirt", null);
+        index.index(3, "red hat", null);
+
+        assertThat(index.search("red shirt", 10)).containsExactly(1);
+        assertThat(index.search("red sh", 10)).containsExactly(1);
+        assertThat(index.search("green shirt", 10)).isEmpty();
+    }
+
+    @Test
+    void shortPrefixMatchesEveryTermAndIsLimitedByRank() {
+        //Nhiều hơn 64 term có prefix "a", sản phẩm ở cuối bảng chữ cái vẫn được tìm thấy
+        IntStream.rangeClosed(1, 200).forEach(id -> index.index(id, String.format("a%03d", id), null));
+        index.index(201, "a", null);
+
+        assertThat(index.search("a", 500)).hasSize(201);
+        assertThat(index.search("a", 3)).containsExactly(201, 1, 2);
+        assertThat(index.search("a199", 10)).containsExactly(199);
+    }
+
+    @Test
+    void removedProductIsNotFound() {
+        index.index(1, "lamp", null);
+        index.index(2, "lamp shade", null);
+        index.remove(1);
+
+        assertThat(index.search("lamp", 10)).containsExactly(2);
+    }
+
+    @Test
+    void buildIsRetriedUntilTheDatabaseAnswers() {
+        ProductRepository.SearchText text = searchText(7, "Desk lamp", "warm light");
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(anyInt(), any()))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(List.of(text));
+
+        index.start();
+
+        await().atMost(Duration.ofSeconds(10)).until(index::isReady);
+        assertThat(index.search("lamp", 10)).containsExactly(7);
+    }
+
+    private static ProductRepository.SearchText searchText(Integer id, String name, String description) {
+        return new ProductRepository.SearchText() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.project.assignment.services.sales;
+
+import com.project.assignment.models.SalesRollup;
+import com.project.assignment.repositories.SalesRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SalesRollupServiceTests {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private final SalesRollupRepository salesRollupRepository = mock(SalesRollupRepository.class);
+    private final SalesRollupService salesRollupService =
+            new SalesRollupService(salesRollupRepository, mock(PlatformTransactionManager.class));
+
+    @Test
+    void orderIsCountedOncePerCategoryAndProduct() {
+        //Hai dòng cùng product 1, product 2 cùng category 10, product 3 không có category
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(1, DAY, List.of(
+                new OrderPlacedEvent.Line(1, 10, 2, 2000),
+                new OrderPlacedEvent.Line(1, 10, 1, 900),
+                new OrderPlacedEvent.Line(2, 10, 3, 1500),
+                new OrderPlacedEvent.Line(3, 0, 1, 100))));
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(2, DAY, List.of(
+                new OrderPlacedEvent.Line(2, 10, 1, 500))));
+
+        salesRollupService.flush();
+
+        verify(salesRollupRepository).merge(SalesRollup.DAY, 0, DAY, 2, 8, 5000);
+        verify(salesRollupRepository).merge(SalesRollup.CATEGORY, 10, DAY, 2, 7, 4900);
+        verify(salesRollupRepository).merge(SalesRollup.CATEGORY, 0, DAY, 1, 1, 100);
+        verify(salesRollupRepository).merge(SalesRollup.PRODUCT, 1, DAY, 1, 3, 2900);
+        verify(salesRollupRepository).merge(SalesRollup.PRODUCT, 2, DAY, 2, 4, 2000);
+        verify(salesRollupRepository).merge(SalesRollup.PRODUCT, 3, DAY, 1, 1, 100);
+    }
+
+    @Test
+    void flushedDeltasAreNotWrittenAgain() {
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(1, DAY, List.of(new OrderPlacedEvent.Line(1, 10, 1, 100))));
+        salesRollupService.flush();
+        salesRollupService.flush();
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(2, DAY, List.of(new OrderPlacedEvent.Line(1, 10, 2, 200))));
+        salesRollupService.flush();
+
+        verify(salesRollupRepository).merge(SalesRollup.DAY, 0, DAY, 1, 1, 100);
+        verify(salesRollupRepository).merge(SalesRollup.DAY, 0, DAY, 1, 2, 200);
+        verify(salesRollupRepository, times(6)).merge(anyString(), anyInt(), any(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void failedFlushKeepsDeltasForTheNextFlush() {
+        when(salesRollupRepository.merge(anyString(), anyInt(), any(), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new QueryTimeoutException("database is down"))
+                .thenReturn(1);
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(1, DAY, List.of(new OrderPlacedEvent.Line(1, 10, 1, 100))));
+        salesRollupService.flush();
+        //Đơn đến sau lần flush lỗi được cộng vào cùng delta
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(2, DAY, List.of(new OrderPlacedEvent.Line(1, 10, 1, 100))));
+
+        salesRollupService.flush();
+
+        verify(salesRollupRepository).merge(SalesRollup.DAY, 0, DAY, 2, 2, 200);
+        verify(salesRollupRepository).merge(SalesRollup.PRODUCT, 1, DAY, 2, 2, 200);
+    }
+
+    @Test
+    void concurrentOrdersAndFlushesLoseNoDelta() throws InterruptedException {
+        AtomicLong revenue = new AtomicLong();
+        AtomicLong orders = new AtomicLong();
+        when(salesRollupRepository.merge(eq(SalesRollup.DAY), anyInt(), any(), anyLong(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> {
+                    orders.addAndGet(invocation.<Long>getArgument(3));
+                    revenue.addAndGet(invocation.<Long>getArgument(5));
+                    return 1;
+                });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    salesRollupService.onOrderPlaced(new OrderPlacedEvent(i, DAY, List.of(new OrderPlacedEvent.Line(1, 10, 1, 3))));
+                }
+            });
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            salesRollupService.flush();
+        }
+        salesRollupService.flush();
+
+        assertThat(orders).hasValue(8000);
+        assertThat(revenue).hasValue(24000);
+    }
+
+    @Test
+    void rebuildDropsUnflushedDeltas() {
+        salesRollupService.onOrderPlaced(new OrderPlacedEvent(1, DAY, List.of(new OrderPlacedEvent.Line(1, 10, 1, 100))));
+
+        salesRollupService.rebuild();
+        salesRollupService.flush();
+
+        verify(salesRollupRepository).deleteAllRollups();
+        verify(salesRollupRepository, never()).merge(anyString(), anyInt(), any(), anyLong(), anyLong(), anyLong());
+    }
+}
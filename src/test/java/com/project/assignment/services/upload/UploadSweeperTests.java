@@ -0,0 +1,45 @@
+package com.project.assignment.services.upload;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadSweeperTests {
+    private static final String HASH = "ab12" + "0123456789abcdef".repeat(3) + "0123456789ab";
+
+    @Test
+    void contentAddressedFilesAndTheirVariantsAreGenerated() {
+        assertThat(HASH).hasSize(64);
+        assertThat(UploadSweeper.generatedName("ab/12/" + HASH + ".jpg")).isTrue();
+        assertThat(UploadSweeper.generatedName("ab/12/" + HASH + "_w320.jpg")).isTrue();
+        assertThat(UploadSweeper.generatedName("ab/12/" + HASH + ".png.ref")).isTrue();
+    }
+
+    @Test
+    void legacyUuidFilesAreGenerated() {
+        assertThat(UploadSweeper.generatedName("123e4567-e89b-12d3-a456-426614174000_shirt front.png")).isTrue();
+        assertThat(UploadSweeper.generatedName("123e4567-e89b-12d3-a456-426614174000_shirt.png.ref")).isTrue();
+    }
+
+    @Test
+    void otherFilesAreLeftAlone() {
+        assertThat(UploadSweeper.generatedName("default_image.jpg")).isFalse();
+        //Thư mục không khớp với hash
+        assertThat(UploadSweeper.generatedName("cd/12/" + HASH + ".jpg")).isFalse();
+        assertThat(UploadSweeper.generatedName(HASH + ".jpg")).isFalse();
+        assertThat(UploadSweeper.generatedName("ab/12/" + HASH.toUpperCase() + ".jpg")).isFalse();
+        assertThat(UploadSweeper.generatedName("ab/12/" + HASH.substring(1) + ".jpg")).isFalse();
+        //Bản cũ nằm thẳng trong folder, không nằm trong thư mục con
+        assertThat(UploadSweeper.generatedName("old/123e4567-e89b-12d3-a456-426614174000_shirt.png")).isFalse();
+        assertThat(UploadSweeper.generatedName("123e4567-e89b-12d3-a456_shirt.png")).isFalse();
+    }
+
+    @Test
+    void variantsPointToTheirOriginal() {
+        assertThat(UploadSweeper.variantOriginalPrefix(HASH + "_w320.jpg")).isEqualTo(HASH + ".");
+        assertThat(UploadSweeper.variantOriginalPrefix("a_b_w64.jpg")).isEqualTo("a_b.");
+        assertThat(UploadSweeper.variantOriginalPrefix(HASH + ".jpg")).isNull();
+        assertThat(UploadSweeper.variantOriginalPrefix(HASH + "_w320.png")).isNull();
+        assertThat(UploadSweeper.variantOriginalPrefix(HASH + "_wide.jpg")).isNull();
+    }
+}
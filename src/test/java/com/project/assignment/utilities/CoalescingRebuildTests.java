@@ -0,0 +1,78 @@
+package com.project.assignment.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CoalescingRebuildTests {
+
+    @Test
+    void failedRunIsRetriedUntilItSucceeds() {
+        AtomicInteger runs = new AtomicInteger();
+        CoalescingRebuild rebuild = new CoalescingRebuild("test-rebuild", () -> runs.incrementAndGet() >= 3, 10, 40);
+        try {
+            rebuild.request();
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> runs.get() == 3);
+            //Thành công thì không chạy lại nữa
+            await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(1)).until(() -> runs.get() == 3);
+        } finally {
+            rebuild.stop();
+        }
+    }
+
+    @Test
+    void requestsDuringARunAreCoalescedIntoOneMoreRun() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        CoalescingRebuild rebuild = new CoalescingRebuild("test-rebuild", () -> {
+            if (runs.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        });
+        try {
+            rebuild.request();
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 10; i++) {
+                rebuild.request();
+            }
+            release.countDown();
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> runs.get() == 2);
+            await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(1)).until(() -> runs.get() == 2);
+        } finally {
+            rebuild.stop();
+        }
+    }
+
+    @Test
+    void exceptionCountsAsFailure() {
+        AtomicInteger runs = new AtomicInteger();
+        CoalescingRebuild rebuild = new CoalescingRebuild("test-rebuild", () -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new IllegalStateException("database is down");
+            }
+            return true;
+        }, 10, 10);
+        try {
+            rebuild.request();
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> runs.get() == 2);
+        } finally {
+            rebuild.stop();
+        }
+    }
+}
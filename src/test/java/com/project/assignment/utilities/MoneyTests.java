@@ -0,0 +1,26 @@
+package com.project.assignment.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyTests {
+
+    @Test
+    void floatPricesConvertToTheirDecimalCents() {
+        assertThat(Money.toCents(19.99f)).isEqualTo(1999);
+        assertThat(Money.toCents(0.1f)).isEqualTo(10);
+        assertThat(Money.toCents(1234567.9f)).isEqualTo(123456790);
+        //Phần lẻ dưới cent được làm tròn
+        assertThat(Money.toCents(0.005f)).isEqualTo(1);
+        assertThat(Money.toCents(null)).isZero();
+    }
+
+    @Test
+    void centsConvertBackWithTwoDecimals() {
+        assertThat(Money.fromCents(1999)).isEqualTo(new BigDecimal("19.99"));
+        assertThat(Money.fromCents(-5)).isEqualTo(new BigDecimal("-0.05"));
+    }
+}